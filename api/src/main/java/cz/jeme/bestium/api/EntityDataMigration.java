@@ -0,0 +1,25 @@
+package cz.jeme.bestium.api;
+
+import org.bukkit.entity.Entity;
+
+/**
+ * A single step migrating the persistent data of an injected entity from one data version to the next one.
+ * <p>
+ * Steps are applied lazily, when an entity saved with an older data version is loaded.
+ * They run on the thread owning the entity, before its variant is read and its model is applied.
+ *
+ * @see EntityManager#registerMigration(cz.jeme.bestium.api.inject.EntityInjection, int, EntityDataMigration)
+ */
+@FunctionalInterface
+public interface EntityDataMigration {
+    /**
+     * Migrates the data of the entity by one version.
+     * <p>
+     * If this method throws, the entity keeps the data version it had before this step
+     * and the step is attempted again the next time the entity is loaded.
+     *
+     * @param entity the entity to migrate
+     * @throws Exception if the data of the entity cannot be migrated
+     */
+    void migrate(final Entity entity) throws Exception;
+}
@@ -0,0 +1,73 @@
+package cz.jeme.bestium.api;
+
+import cz.jeme.bestium.api.inject.EntityInjection;
+import org.bukkit.World;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A persistent index of the injected entities of a single world, by chunk.
+ * <p>
+ * The index covers both loaded entities and entities saved in unloaded chunks, so it can answer
+ * population queries without loading any chunks. It is kept in the Bestium data folder and updated
+ * as entities are added to the world, removed from it and saved with their chunks.
+ * The chunk of an entity is the one it was in when it was added, or when its chunk was last saved.
+ * <p>
+ * <strong>Note:</strong> Entities are only indexed once they have been loaded while the index existed.
+ * Entities saved in chunks that have not been loaded since the index was introduced
+ * (e.g., in worlds created with an older version of Bestium), or since the index files were deleted,
+ * are missing from the index, so the counts are lower bounds until all such chunks are loaded again.
+ * <p>
+ * Chunk keys use the same format as {@link org.bukkit.Chunk#getChunkKey(int, int)}.
+ * The index should only be accessed from the main thread.
+ *
+ * @see EntityManager#getEntityIndex(World)
+ */
+@ApiStatus.NonExtendable
+public interface EntityIndex {
+    /**
+     * Returns the world this index belongs to.
+     *
+     * @return the world
+     */
+    World getWorld();
+
+    /**
+     * Returns the number of entities of the given injection in the world.
+     *
+     * @param injection the injection
+     * @return the entity count
+     */
+    int count(final EntityInjection<?, ?> injection);
+
+    /**
+     * Returns the number of entities of the given injection in the given chunk.
+     *
+     * @param injection the injection
+     * @param chunkX    the chunk X coordinate
+     * @param chunkZ    the chunk Z coordinate
+     * @return the entity count
+     */
+    int count(final EntityInjection<?, ?> injection, final int chunkX, final int chunkZ);
+
+    /**
+     * Returns the UUIDs of the entities of the given injection in the given chunk.
+     *
+     * @param injection the injection
+     * @param chunkX    the chunk X coordinate
+     * @param chunkZ    the chunk Z coordinate
+     * @return an immutable set of entity UUIDs
+     */
+    Set<UUID> getEntities(final EntityInjection<?, ?> injection, final int chunkX, final int chunkZ);
+
+    /**
+     * Returns the number of entities of the given injection in every chunk that holds at least one of them.
+     *
+     * @param injection the injection
+     * @return an immutable map of chunk keys to entity counts
+     */
+    Map<Long, Integer> getChunkCounts(final EntityInjection<?, ?> injection);
+}
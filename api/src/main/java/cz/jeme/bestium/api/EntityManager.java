@@ -5,6 +5,7 @@ import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.EntitySpawnReason;
 import net.minecraft.world.entity.EntityType;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.craftbukkit.entity.CraftEntity;
 import org.bukkit.event.entity.CreatureSpawnEvent;
 import org.jetbrains.annotations.ApiStatus;
@@ -186,4 +187,93 @@ public interface EntityManager {
     default EntityType<?> getBackingType(final org.bukkit.entity.Entity entity) {
         return getBackingType(((CraftEntity) entity).getHandle());
     }
+
+    /**
+     * Returns the number of entity data packets of injected entities that were not broadcast,
+     * because they carried no data the viewing clients did not already have.
+     * <p>
+     * This mostly happens for entities with a model, where most of the entity data is stripped
+     * before being sent and only the (unchanged) shared flags remain.
+     *
+     * @return the number of suppressed entity data packets since the server started
+     * @see #getSuppressedEntityDataBytes()
+     */
+    long getSuppressedEntityDataPackets();
+
+    /**
+     * Returns an estimate of the uncompressed bytes saved by not broadcasting redundant entity data packets
+     * of injected entities.
+     * <p>
+     * The estimate counts every suppressed packet once, even if it would have been sent to multiple clients.
+     *
+     * @return the estimated number of suppressed bytes since the server started
+     * @see #getSuppressedEntityDataPackets()
+     */
+    long getSuppressedEntityDataBytes();
+
+    /**
+     * Returns the counters and the sampled latency histogram of the given {@link RewriteSite}.
+     * <p>
+     * These can be used to correlate the overhead of Bestium with the network tick time.
+     *
+     * @param site the rewrite site
+     * @return the statistics of the rewrite site
+     */
+    RewriteStatistics getRewriteStatistics(final RewriteSite site);
+
+    /**
+     * Returns the depth and the drain latency of the queue injected entities wait in after being added to a world.
+     *
+     * @return the post-initialization statistics
+     */
+    PostInitializationStatistics getPostInitializationStatistics();
+
+    /**
+     * Registers a step migrating the persistent data of the entities of the given injection
+     * from the given data version to the next one.
+     * <p>
+     * The data version of an injection starts at {@code 0} and equals the number of steps registered for it,
+     * so steps have to be registered in order, starting at version {@code 0}. Newly spawned entities are saved
+     * with the current data version, entities saved with an older one are migrated when loaded,
+     * applying all the missing steps in a single pass.
+     * <p>
+     * Steps should be registered before any entities of the injection are spawned or loaded,
+     * for example when the plugin is enabled.
+     *
+     * @param injection   the injection whose entities the step migrates
+     * @param fromVersion the data version the step migrates from
+     * @param migration   the migration step
+     * @throws IllegalArgumentException if {@code fromVersion} is not the current data version of the injection
+     *                                  or the data version would exceed the supported maximum
+     */
+    void registerMigration(final EntityInjection<?, ?> injection, final int fromVersion, final EntityDataMigration migration);
+
+    /**
+     * Returns the current data version of the given injection, which is the number of migration steps registered for it.
+     *
+     * @param injection the injection
+     * @return the current data version of the injection
+     * @see #registerMigration(EntityInjection, int, EntityDataMigration)
+     */
+    int getDataVersion(final EntityInjection<?, ?> injection);
+
+    /**
+     * Returns the persistent index of the injected entities of the given world, by chunk.
+     *
+     * @param world the world
+     * @return the entity index of the world
+     */
+    EntityIndex getEntityIndex(final World world);
+
+    /**
+     * Re-evaluates the variant rule for every loaded entity of the given injection and applies the new models.
+     * <p>
+     * The entities are processed in batches under a per-tick time budget, configured in the Bestium config,
+     * so that re-evaluating many entities does not freeze the server. Entities that are not loaded
+     * keep their current variant.
+     *
+     * @param injection the injection whose entities should be re-evaluated
+     * @return the running re-evaluation
+     */
+    VariantReroll rerollVariants(final EntityInjection<?, ?> injection);
 }
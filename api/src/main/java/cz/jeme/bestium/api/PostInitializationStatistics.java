@@ -0,0 +1,58 @@
+package cz.jeme.bestium.api;
+
+import org.jetbrains.annotations.ApiStatus;
+
+/**
+ * Statistics of the queue injected entities wait in after being added to a world,
+ * until their persistent data is read, their variant is picked and their model is applied.
+ * <p>
+ * The queue is drained under a per-tick time budget configured in the Bestium config,
+ * so that loading many injected entities at once does not freeze the server.
+ * Entities are hidden from players while they wait. All the values except the queue depth
+ * are cumulative since the server started.
+ *
+ * @see EntityManager#getPostInitializationStatistics()
+ */
+@ApiStatus.NonExtendable
+public interface PostInitializationStatistics {
+    /**
+     * Returns the number of entities currently waiting in the queues of all worlds.
+     *
+     * @return the queue depth
+     */
+    int getQueueDepth();
+
+    /**
+     * Returns the number of entities post-initialized after waiting in the queue.
+     * <p>
+     * Entities that were removed from their world before their turn are not counted.
+     *
+     * @return the processed entity count
+     */
+    long getProcessed();
+
+    /**
+     * Returns the total time the processed entities spent in the queue in nanoseconds.
+     *
+     * @return the total drain latency in nanoseconds
+     */
+    long getTotalLatencyNanos();
+
+    /**
+     * Returns the longest time a processed entity spent in the queue in nanoseconds.
+     *
+     * @return the maximum drain latency in nanoseconds
+     */
+    long getMaxLatencyNanos();
+
+    /**
+     * Returns the average time a processed entity spent in the queue in nanoseconds.
+     *
+     * @return the average drain latency in nanoseconds, or {@code 0} if no entities were processed
+     */
+    default long getAverageLatencyNanos() {
+        final long processed = getProcessed();
+        if (processed == 0) return 0;
+        return getTotalLatencyNanos() / processed;
+    }
+}
@@ -0,0 +1,43 @@
+package cz.jeme.bestium.api;
+
+/**
+ * The places where Bestium inspects and rewrites server internals to make injected entities work on vanilla clients.
+ *
+ * @see EntityManager#getRewriteStatistics(RewriteSite)
+ */
+public enum RewriteSite {
+    /**
+     * The entity type in add entity packets, replaced by the backing type for injected entities.
+     * <p>
+     * Every constructed packet is inspected, packets of injected entities are rewritten.
+     */
+    ADD_ENTITY_PACKET,
+    /**
+     * The entity data in entity data packets, stripped of the data unknown to the backing type
+     * and updated to hide entities with a model.
+     * <p>
+     * Every constructed packet is inspected, packets whose data changed are rewritten.
+     */
+    ENTITY_DATA_PACKET,
+    /**
+     * The broadcast of entity data packets, skipped for injected entities when it is redundant.
+     * <p>
+     * Every broadcast entity data packet is inspected, suppressed packets are counted as rewritten
+     * and all of their values as dropped.
+     *
+     * @see EntityManager#getSuppressedEntityDataPackets()
+     */
+    ENTITY_DATA_BROADCAST,
+    /**
+     * The entity type in entity hover event tooltips, replaced by the backing type for injected entities.
+     * <p>
+     * Every constructed tooltip is inspected, tooltips of injected entities are rewritten.
+     */
+    ENTITY_TOOLTIP,
+    /**
+     * The tracking of injected entities, which is required for rewriting their packets.
+     * <p>
+     * Every tracking attempt is inspected, entities that were not tracked before are counted as rewritten.
+     */
+    ENTITY_TRACKING
+}
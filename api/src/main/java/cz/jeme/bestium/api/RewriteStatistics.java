@@ -0,0 +1,118 @@
+package cz.jeme.bestium.api;
+
+import org.jetbrains.annotations.ApiStatus;
+
+/**
+ * Counters and a sampled latency histogram of a single {@link RewriteSite}.
+ * <p>
+ * All the values are cumulative since the server started. The counters are exact,
+ * while the latency is only measured for roughly one in {@link #getSamplingInterval()} calls.
+ *
+ * @see EntityManager#getRewriteStatistics(RewriteSite)
+ */
+@ApiStatus.NonExtendable
+public interface RewriteStatistics {
+    /**
+     * The number of latency buckets in the histogram returned by {@link #getLatencyHistogram()}.
+     */
+    int LATENCY_BUCKETS = Long.SIZE;
+
+    /**
+     * Returns the site these statistics belong to.
+     *
+     * @return the rewrite site
+     */
+    RewriteSite getSite();
+
+    /**
+     * Returns the number of times this site was inspected.
+     *
+     * @return the inspection count
+     */
+    long getInspected();
+
+    /**
+     * Returns the number of times this site was rewritten.
+     * <p>
+     * What counts as a rewrite depends on the site, see {@link RewriteSite}.
+     *
+     * @return the rewrite count
+     */
+    long getRewritten();
+
+    /**
+     * Returns the number of entity data values dropped at this site.
+     * <p>
+     * Always {@code 0} for sites that do not handle entity data.
+     *
+     * @return the dropped value count
+     */
+    long getDroppedValues();
+
+    /**
+     * Returns roughly how many calls to this site there are per one latency sample.
+     *
+     * @return the sampling interval
+     */
+    int getSamplingInterval();
+
+    /**
+     * Returns the number of latency samples taken.
+     *
+     * @return the sample count
+     */
+    long getSamples();
+
+    /**
+     * Returns the total time measured by all the latency samples in nanoseconds.
+     *
+     * @return the sampled time in nanoseconds
+     */
+    long getSampledNanos();
+
+    /**
+     * Returns an estimate of the total time spent at this site in nanoseconds,
+     * extrapolated from the latency samples.
+     *
+     * @return the estimated time in nanoseconds
+     */
+    default long getEstimatedNanos() {
+        final long samples = getSamples();
+        if (samples == 0) return 0;
+        return (long) ((double) getSampledNanos() / samples * getInspected());
+    }
+
+    /**
+     * Returns a copy of the latency histogram.
+     * <p>
+     * The bucket at index {@code i} counts the samples that took at least {@code 2^i}
+     * and less than {@code 2^(i+1)} nanoseconds. The first bucket also counts samples shorter than one nanosecond.
+     *
+     * @return the latency histogram with {@link #LATENCY_BUCKETS} buckets
+     */
+    long[] getLatencyHistogram();
+
+    /**
+     * Returns an upper bound of the given latency percentile in nanoseconds, computed from the latency histogram.
+     *
+     * @param percentile the percentile in the range {@code 0-100}
+     * @return the upper bound of the percentile in nanoseconds, or {@code 0} if no samples were taken
+     * @throws IllegalArgumentException if the percentile is outside the range {@code 0-100}
+     */
+    default long getLatencyPercentileNanos(final double percentile) {
+        if (percentile < 0 || percentile > 100) throw new IllegalArgumentException(
+                "Percentile must be in the range 0-100: " + percentile
+        );
+        final long[] histogram = getLatencyHistogram();
+        long total = 0;
+        for (final long count : histogram) total += count;
+        if (total == 0) return 0;
+        final double threshold = total * percentile / 100;
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= threshold) return i == LATENCY_BUCKETS - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,57 @@
+package cz.jeme.bestium.api;
+
+import cz.jeme.bestium.api.inject.EntityInjection;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A running re-evaluation of the variants of all the loaded entities of an injection.
+ * <p>
+ * The entities are processed in batches spread over multiple ticks, so that the server does not freeze.
+ *
+ * @see EntityManager#rerollVariants(EntityInjection)
+ */
+@ApiStatus.NonExtendable
+public interface VariantReroll {
+    /**
+     * Returns the injection whose entities are being re-evaluated.
+     *
+     * @return the injection
+     */
+    EntityInjection<?, ?> getInjection();
+
+    /**
+     * Returns the number of entities that were loaded when the re-evaluation started.
+     *
+     * @return the total number of entities
+     */
+    int getTotal();
+
+    /**
+     * Returns the number of entities processed so far, including entities that were unloaded
+     * before their turn and were skipped.
+     *
+     * @return the number of processed entities
+     */
+    int getProcessed();
+
+    /**
+     * Returns whether all the entities were processed or the re-evaluation was cancelled.
+     *
+     * @return {@code true} if the re-evaluation is done, {@code false} otherwise
+     */
+    boolean isDone();
+
+    /**
+     * Stops the re-evaluation, entities not processed yet keep their current variant.
+     */
+    void cancel();
+
+    /**
+     * Returns a future completing with this re-evaluation once it is done.
+     *
+     * @return the completion future
+     */
+    CompletableFuture<VariantReroll> getCompletion();
+}
@@ -19,10 +19,12 @@ import org.jetbrains.annotations.Unmodifiable;
 import org.jspecify.annotations.Nullable;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.IntPredicate;
 import java.util.function.Supplier;
 
 /**
@@ -131,6 +133,17 @@ public sealed interface EntityInjection<M extends Entity, E extends org.bukkit.e
     @Unmodifiable
     Map<String, BoundEntityVariant> getVariants();
 
+    /**
+     * Returns the model variants associated with this entity injection as a list.
+     * <p>
+     * The returned list holds the same variants as {@link #getVariants()}, in the same order,
+     * but allows accessing them by index.
+     *
+     * @return an unmodifiable, insertion-ordered list of bound entity variants
+     */
+    @Unmodifiable
+    List<BoundEntityVariant> getVariantList();
+
     /**
      * Returns a map of display names, where each {@link Locale} corresponds
      * to a {@link Component} that serves as the display name.
@@ -164,8 +177,11 @@ public sealed interface EntityInjection<M extends Entity, E extends org.bukkit.e
     /**
      * Returns the {@link VariantRule} responsible for choosing the variant for this
      * entity when in spawns into the world.
+     * <p>
+     * This is the rule provided to the builder, already bound to this injection.
      *
      * @return the variant rule for this entity
+     * @see VariantRule#bind(EntityInjection)
      */
     VariantRule getVariantRule();
 
@@ -177,6 +193,17 @@ public sealed interface EntityInjection<M extends Entity, E extends org.bukkit.e
      */
     SpawnRule getSpawnRule();
 
+    /**
+     * Returns the filter deciding which synched entity data IDs of this entity may be sent to the client.
+     * <p>
+     * The filter is evaluated once for every data ID in the range {@code 0-63} when the entity is injected.
+     * Data with an ID outside of this range is never sent to the client.
+     *
+     * @return the client data filter for this entity
+     * @see Builder#setClientDataFilter(IntPredicate)
+     */
+    IntPredicate getClientDataFilter();
+
     /**
      * Returns the synthetic {@link EntityType} created and used internally by Bestium.
      * <p>
@@ -586,11 +613,40 @@ public sealed interface EntityInjection<M extends Entity, E extends org.bukkit.e
             return setSpawnRule(spawnRuleSupplier.get());
         }
 
+        /**
+         * Sets the filter deciding which synched entity data IDs of this entity may be sent to the client.
+         * <p>
+         * Only the data of the backing type is understood by the client, so the filter should never accept
+         * IDs the backing type does not define. Stripping more data (e.g., when the entity is fully covered by a model)
+         * reduces the bandwidth used by this entity.
+         * <p>
+         * The shared flags (ID {@code 0}) are always sent, as Bestium uses them to hide entities with a model.
+         * Only IDs in the range {@code 0-63} can be accepted.
+         * <p>
+         * Defaults to: IDs up to {@code 14} for living entities
+         * (see <a href="https://minecraft.wiki/w/Java_Edition_protocol/Entity_metadata#Living_Entity">Living Entity</a>),
+         * otherwise IDs up to {@code 7}
+         * (see <a href="https://minecraft.wiki/w/Java_Edition_protocol/Entity_metadata#Entity">Entity</a>).
+         *
+         * @param clientDataFilter the filter accepting the data IDs to send
+         * @return this builder
+         */
+        Builder<M, E> setClientDataFilter(final IntPredicate clientDataFilter);
+
+        /**
+         * Returns the filter deciding which synched entity data IDs of this entity may be sent to the client.
+         *
+         * @return the client data filter
+         */
+        IntPredicate getClientDataFilter();
+
         /**
          * Builds the {@link EntityInjection} instance.
          *
          * @return the built entity injection instance
-         * @throws IllegalArgumentException if the entity is a living entity and no attributes were provided
+         * @throws IllegalArgumentException if the entity is a living entity and no attributes were provided,
+         *                                  or if the variant rule refers to an unknown variant
+         * @see VariantRule#bind(EntityInjection)
          */
         @Override
         EntityInjection<M, E> build();
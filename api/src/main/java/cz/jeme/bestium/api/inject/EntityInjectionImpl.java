@@ -19,6 +19,7 @@ import org.jspecify.annotations.Nullable;
 import java.util.*;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 
 final class EntityInjectionImpl<T extends Entity, B extends org.bukkit.entity.Entity> implements EntityInjection<T, B> {
@@ -31,9 +32,11 @@ final class EntityInjectionImpl<T extends Entity, B extends org.bukkit.entity.En
     private final Consumer<EntityType.Builder<T>> typeBuilder;
     private final @Nullable AttributeSupplier attributes;
     private final Map<String, BoundEntityVariant> variants;
+    private final List<BoundEntityVariant> variantList;
     private final Map<Locale, Component> displayNames;
     private final VariantRule variantRule;
     private final SpawnRule spawnRule;
+    private final IntPredicate clientDataFilter;
 
     private @Nullable EntityType<T> lazyRealType;
 
@@ -58,12 +61,15 @@ final class EntityInjectionImpl<T extends Entity, B extends org.bukkit.entity.En
                         },
                         LinkedHashMap::new
                 )));
+        variantList = List.copyOf(variants.values());
         displayNames = Collections.unmodifiableMap(builder.displayNames);
-        variantRule = builder.variantRule;
         spawnRule = builder.spawnRule;
+        clientDataFilter = builder.clientDataFilter;
 
         if (LivingEntity.class.isAssignableFrom(entityClass) && attributes == null)
             throw new IllegalArgumentException("Living entities must have attributes");
+
+        variantRule = builder.variantRule.bind(this); // bound last, the rule may read any other property
     }
 
     @Override
@@ -111,6 +117,11 @@ final class EntityInjectionImpl<T extends Entity, B extends org.bukkit.entity.En
         return variants;
     }
 
+    @Override
+    public @Unmodifiable List<BoundEntityVariant> getVariantList() {
+        return variantList;
+    }
+
     @Override
     public @Unmodifiable Map<Locale, Component> getDisplayNames() {
         return displayNames;
@@ -126,6 +137,11 @@ final class EntityInjectionImpl<T extends Entity, B extends org.bukkit.entity.En
         return spawnRule;
     }
 
+    @Override
+    public IntPredicate getClientDataFilter() {
+        return clientDataFilter;
+    }
+
     @Override
     public EntityType<T> getRealType() {
         if (lazyRealType == null) {
@@ -140,6 +156,11 @@ final class EntityInjectionImpl<T extends Entity, B extends org.bukkit.entity.En
     }
 
     static final class BuilderImpl<T extends Entity, B extends org.bukkit.entity.Entity> implements Builder<T, B> {
+        // https://minecraft.wiki/w/Java_Edition_protocol/Entity_metadata#Entity
+        private static final int ENTITY_MAX_DATA_ID = 7;
+        // https://minecraft.wiki/w/Java_Edition_protocol/Entity_metadata#Living_Entity
+        private static final int LIVING_ENTITY_MAX_DATA_ID = 14;
+
         // required parameters
         private final Key key;
         private final Class<T> entityClass;
@@ -156,6 +177,7 @@ final class EntityInjectionImpl<T extends Entity, B extends org.bukkit.entity.En
         private Map<Locale, Component> displayNames = new HashMap<>();
         private VariantRule variantRule = VariantRule.first();
         private SpawnRule spawnRule = SpawnRule.never();
+        private IntPredicate clientDataFilter;
 
         public BuilderImpl(final Key key,
                            final Class<T> entityClass,
@@ -172,6 +194,8 @@ final class EntityInjectionImpl<T extends Entity, B extends org.bukkit.entity.En
             attributes = isLivingEntity
                     ? LivingEntity.createLivingAttributes().build()
                     : null;
+            final int maxDataId = isLivingEntity ? LIVING_ENTITY_MAX_DATA_ID : ENTITY_MAX_DATA_ID;
+            clientDataFilter = id -> id <= maxDataId;
         }
 
 
@@ -291,6 +315,17 @@ final class EntityInjectionImpl<T extends Entity, B extends org.bukkit.entity.En
             return spawnRule;
         }
 
+        @Override
+        public Builder<T, B> setClientDataFilter(final IntPredicate clientDataFilter) {
+            this.clientDataFilter = clientDataFilter;
+            return this;
+        }
+
+        @Override
+        public IntPredicate getClientDataFilter() {
+            return clientDataFilter;
+        }
+
         @Override
         public EntityInjection<T, B> build() {
             return new EntityInjectionImpl<>(this);
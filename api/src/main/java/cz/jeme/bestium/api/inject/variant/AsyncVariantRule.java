@@ -0,0 +1,39 @@
+package cz.jeme.bestium.api.inject.variant;
+
+import org.jetbrains.annotations.Unmodifiable;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A functional interface with one method used to determine which variant an entity
+ * will have after spawning, for rules too expensive to evaluate on the main thread.
+ * <p>
+ * An asynchronous rule is used as the variant rule of an entity injection by wrapping it
+ * with {@link VariantRule#async(AsyncVariantRule)}.
+ */
+@FunctionalInterface
+public interface AsyncVariantRule {
+    /**
+     * Picks the variant to apply to an entity upon spawning.
+     * <p>
+     * This method is called on a virtual thread. The variant (or its absence) is persisted and the model
+     * is applied on the thread owning the entity once the returned future completes. Until then, the entity
+     * has no variant. If the entity is unloaded in the meantime, the result is discarded and the rule
+     * is evaluated again the next time the entity is loaded.
+     * <p>
+     * The same restrictions as for {@link VariantRule#apply(Map, EntitySpawnContext)} apply to the returned
+     * variant. The {@code context} is a {@linkplain EntitySpawnContext#snapshot() snapshot},
+     * the entity itself must not be accessed.
+     *
+     * @param variants an unmodifiable map of variant IDs to bound variants
+     * @param context  a snapshot of contextual data from the spawning entity
+     * @return a future completing with the variant to apply,
+     * or with {@code null} if no variant (model) should be applied
+     */
+    CompletableFuture<@Nullable BoundEntityVariant> apply(
+            final @Unmodifiable Map<String, BoundEntityVariant> variants,
+            final EntitySpawnContext context
+    );
+}
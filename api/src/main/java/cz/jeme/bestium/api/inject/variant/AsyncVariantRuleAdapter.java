@@ -0,0 +1,36 @@
+package cz.jeme.bestium.api.inject.variant;
+
+import org.bukkit.Bukkit;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Map;
+
+/**
+ * A variant rule wrapping an asynchronous variant rule.
+ *
+ * @see VariantRule#async(AsyncVariantRule)
+ */
+final class AsyncVariantRuleAdapter implements VariantRule {
+    private final AsyncVariantRule rule;
+
+    AsyncVariantRuleAdapter(final AsyncVariantRule rule) {
+        this.rule = rule;
+    }
+
+    @Override
+    public AsyncVariantRule getAsyncRule() {
+        return rule;
+    }
+
+    @Override
+    public @Nullable BoundEntityVariant apply(
+            final Map<String, BoundEntityVariant> variants,
+            final EntitySpawnContext ctx
+    ) {
+        // only reached when applied directly or nested in a rule that does not forward the asynchronous rule
+        if (Bukkit.isPrimaryThread()) throw new IllegalStateException(
+                "Asynchronous variant rules cannot be applied on the main thread, evaluate getAsyncRule() instead"
+        );
+        return rule.apply(variants, ctx.snapshot()).join();
+    }
+}
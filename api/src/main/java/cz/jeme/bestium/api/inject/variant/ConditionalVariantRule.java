@@ -0,0 +1,82 @@
+package cz.jeme.bestium.api.inject.variant;
+
+import cz.jeme.bestium.api.inject.EntityInjection;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A variant rule returning a variant if a condition on the spawn location is met, {@code null} otherwise.
+ * <p>
+ * Rules of this shape are recognized by {@link FirstMatchVariantRule}.
+ */
+final class ConditionalVariantRule implements VariantRule {
+    private final @Nullable Predicate<EntitySpawnContext> condition;
+    private final String variantId;
+    private final @Nullable Set<SpawnContextInput> inputs;
+    private final @Nullable BoundEntityVariant boundVariant;
+
+    /**
+     * Creates a conditional variant rule.
+     *
+     * @param condition the condition to test, or {@code null} if the variant is always returned
+     * @param variantId the ID of the variant to return
+     * @param inputs    the inputs the condition reads, or {@code null} if the condition is not deterministic
+     */
+    ConditionalVariantRule(
+            final @Nullable Predicate<EntitySpawnContext> condition,
+            final String variantId,
+            final @Nullable Set<SpawnContextInput> inputs
+    ) {
+        this(condition, variantId, inputs, null);
+    }
+
+    private ConditionalVariantRule(
+            final @Nullable Predicate<EntitySpawnContext> condition,
+            final String variantId,
+            final @Nullable Set<SpawnContextInput> inputs,
+            final @Nullable BoundEntityVariant boundVariant
+    ) {
+        this.condition = condition;
+        this.variantId = variantId;
+        this.inputs = inputs;
+        this.boundVariant = boundVariant;
+    }
+
+    /**
+     * Returns whether this rule returns its variant regardless of the spawn location.
+     *
+     * @return {@code true} if this rule never returns {@code null}, {@code false} otherwise
+     */
+    boolean isUnconditional() {
+        return condition == null;
+    }
+
+    @Override
+    public VariantRule bind(final EntityInjection<?, ?> injection) {
+        final Map<String, BoundEntityVariant> variants = injection.getVariants();
+        final BoundEntityVariant variant = variants.get(variantId);
+        if (variant == null) throw VariantRules.unknownVariant(variants, injection, variantId);
+        return new ConditionalVariantRule(condition, variantId, inputs, variant);
+    }
+
+    @Override
+    public @Nullable Set<SpawnContextInput> getDeterministicInputs() {
+        return inputs;
+    }
+
+    @Override
+    public @Nullable BoundEntityVariant apply(
+            final Map<String, BoundEntityVariant> variants,
+            final EntitySpawnContext ctx
+    ) {
+        BoundEntityVariant variant = boundVariant;
+        if (variant == null) {
+            variant = variants.get(variantId);
+            if (variant == null) throw VariantRules.unknownVariant(variants, ctx.getInjection(), variantId);
+        }
+        return condition == null || condition.test(ctx) ? variant : null;
+    }
+}
@@ -0,0 +1,45 @@
+package cz.jeme.bestium.api.inject.variant;
+
+import cz.jeme.bestium.api.inject.EntityInjection;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A variant rule declared deterministic by the user.
+ *
+ * @see VariantRule#deterministic(VariantRule, SpawnContextInput...)
+ */
+final class DeterministicVariantRule implements VariantRule {
+    private final VariantRule rule;
+    private final Set<SpawnContextInput> inputs;
+
+    DeterministicVariantRule(final VariantRule rule, final Set<SpawnContextInput> inputs) {
+        this.rule = rule;
+        this.inputs = inputs;
+    }
+
+    @Override
+    public VariantRule bind(final EntityInjection<?, ?> injection) {
+        return new DeterministicVariantRule(rule.bind(injection), inputs);
+    }
+
+    @Override
+    public Set<SpawnContextInput> getDeterministicInputs() {
+        return inputs;
+    }
+
+    @Override
+    public @Nullable AsyncVariantRule getAsyncRule() {
+        return rule.getAsyncRule();
+    }
+
+    @Override
+    public @Nullable BoundEntityVariant apply(
+            final Map<String, BoundEntityVariant> variants,
+            final EntitySpawnContext ctx
+    ) {
+        return rule.apply(variants, ctx);
+    }
+}
@@ -2,22 +2,45 @@ package cz.jeme.bestium.api.inject.variant;
 
 import cz.jeme.bestium.api.Bestium;
 import cz.jeme.bestium.api.inject.EntityInjection;
+import net.kyori.adventure.key.Key;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Holder;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.biome.Biome;
 import org.bukkit.craftbukkit.entity.CraftEntity;
 import org.bukkit.entity.Entity;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * A context object wrapping an {@link Entity} and its properties when spawning.
  * <p>
  * This should be the only source of data for the logic
  * within {@link VariantRule#apply(Map, EntitySpawnContext)}.
+ * <p>
+ * The properties of the spawn location are computed lazily when first requested and then cached,
+ * so all the rules evaluated for a single spawn share them. A spawn context is not thread-safe,
+ * see {@link #snapshot()} for a context that can be read from other threads.
  */
 public final class EntitySpawnContext {
     private final Entity entity;
     private final EntityInjection<?, ?> injection;
+    private final net.minecraft.world.entity.Entity handle;
+    private final boolean seeded;
+    private final boolean snapshot;
+
+    private @Nullable BlockPos blockPosition;
+    private @Nullable Key worldKey;
+    private @Nullable Holder<Biome> biome;
+    private double temperature = Double.NaN;
+    private int lightLevel = -1;
+    private @Nullable RandomGenerator random;
 
     /**
      * Creates an entity spawn context from the given entity.
@@ -43,11 +66,29 @@ public final class EntitySpawnContext {
      */
     @ApiStatus.Internal
     public EntitySpawnContext(final Entity entity, final EntityInjection<?, ?> injection) {
+        this(entity, injection, false);
+    }
+
+    /**
+     * Creates an entity spawn context from the given entity and its injection.
+     * <p>
+     * This constructor is intended for internal use only.
+     *
+     * @param entity    the entity to create context for
+     * @param injection the entity's injection
+     * @param seeded    whether {@link #getRandom()} should be seeded from the entity and its spawn location
+     * @throws IllegalArgumentException if the injection does not belong to the given entity
+     */
+    @ApiStatus.Internal
+    public EntitySpawnContext(final Entity entity, final EntityInjection<?, ?> injection, final boolean seeded) {
         this.entity = entity;
         this.injection = injection;
+        this.seeded = seeded;
+        snapshot = false;
 
+        handle = ((CraftEntity) entity).getHandle();
         final var injEntityClass = injection.getEntityClass();
-        final var entityClass = ((CraftEntity) entity).getHandle().getClass();
+        final var entityClass = handle.getClass();
 
         if (injEntityClass != entityClass) throw new IllegalArgumentException(
                 "Illegal spawn context arguments: Injection for type '" +
@@ -74,6 +115,143 @@ public final class EntitySpawnContext {
         return injection;
     }
 
+    private EntitySpawnContext(final EntitySpawnContext context, final RandomGenerator random) {
+        entity = context.entity;
+        injection = context.injection;
+        handle = context.handle;
+        seeded = context.seeded;
+        snapshot = true;
+        blockPosition = context.getBlockPosition();
+        worldKey = context.getWorldKey();
+        biome = context.getBiome();
+        temperature = context.getTemperature();
+        lightLevel = context.getLightLevel();
+        this.random = random;
+    }
+
+    /**
+     * Creates a snapshot of this context, with all the properties of the spawn location already computed.
+     * <p>
+     * The snapshot may be read from any thread, but only by one thread at a time. Its random generator is
+     * a new generator seeded from this context, so it is reproducible if this context is seeded.
+     * The entity itself must not be accessed from other threads.
+     *
+     * @return a snapshot of this context, or this context if it already is a snapshot
+     * @see AsyncVariantRule
+     */
+    public EntitySpawnContext snapshot() {
+        if (snapshot) return this;
+        return new EntitySpawnContext(this, new SplittableRandom(getRandom().nextLong()));
+    }
+
+    /**
+     * Returns whether this context is a snapshot created by {@link #snapshot()}.
+     *
+     * @return {@code true} if this context is a snapshot, {@code false} otherwise
+     */
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    private ServerLevel level() {
+        return (ServerLevel) handle.level();
+    }
+
+    /**
+     * Returns the position of the block the entity is spawning in.
+     *
+     * @return the spawn block position
+     */
+    public BlockPos getBlockPosition() {
+        if (blockPosition == null) blockPosition = handle.blockPosition();
+        return blockPosition;
+    }
+
+    /**
+     * Returns the key of the world the entity is spawning in.
+     *
+     * @return the spawn world key
+     */
+    public Key getWorldKey() {
+        if (worldKey == null) worldKey = entity.getWorld().getKey();
+        return worldKey;
+    }
+
+    /**
+     * Returns the biome the entity is spawning in.
+     * <p>
+     * This is the same biome Bukkit reports for the spawn location.
+     *
+     * @return the spawn biome
+     */
+    public Holder<Biome> getBiome() {
+        if (biome == null) {
+            final BlockPos pos = getBlockPosition();
+            biome = level().getNoiseBiome(pos.getX() >> 2, pos.getY() >> 2, pos.getZ() >> 2);
+        }
+        return biome;
+    }
+
+    /**
+     * Returns the temperature at the spawn location.
+     *
+     * @return the spawn temperature
+     * @see cz.jeme.bestium.api.util.BiomeTemperature
+     */
+    public double getTemperature() {
+        if (Double.isNaN(temperature))
+            temperature = getBiome().value().getTemperature(getBlockPosition(), level().getSeaLevel());
+        return temperature;
+    }
+
+    /**
+     * Returns the light level at the spawn location, taking both the sky and block light into account.
+     *
+     * @return the spawn light level, from {@code 0} to {@code 15}
+     */
+    public int getLightLevel() {
+        if (lightLevel == -1) lightLevel = level().getMaxLocalRawBrightness(getBlockPosition());
+        return lightLevel;
+    }
+
+    /**
+     * Returns the random generator variant rules should use for their random decisions.
+     * <p>
+     * If seeded variant selection is enabled in the Bestium config, the generator is seeded from the UUID
+     * of the entity, the seed of the world and the spawn chunk, so that the same entity spawning at the same
+     * place always gets the same variant. Otherwise, the generator of the current thread is returned.
+     * <p>
+     * The same generator is returned for all the rules evaluated for a single spawn.
+     *
+     * @return the random generator
+     */
+    public RandomGenerator getRandom() {
+        if (random == null) {
+            if (seeded) {
+                final BlockPos pos = getBlockPosition();
+                final UUID uuid = entity.getUniqueId();
+                long seed = mix(level().getSeed());
+                final long chunkX = pos.getX() >> 4;
+                final long chunkZ = pos.getZ() >> 4;
+                seed = mix(seed ^ (chunkX & 0xFFFFFFFFL | chunkZ << 32));
+                seed = mix(seed ^ uuid.getMostSignificantBits());
+                random = new SplittableRandom(seed ^ uuid.getLeastSignificantBits());
+            } else {
+                random = ThreadLocalRandom.current();
+            }
+        }
+        return random;
+    }
+
+    /**
+     * The SplitMix64 finalizer, spreads every bit of the input over the whole output.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
     @Override
     public boolean equals(final @Nullable Object o) {
         if (!(o instanceof final EntitySpawnContext that)) return false;
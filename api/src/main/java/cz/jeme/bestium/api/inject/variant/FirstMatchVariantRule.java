@@ -0,0 +1,167 @@
+package cz.jeme.bestium.api.inject.variant;
+
+import cz.jeme.bestium.api.inject.EntityInjection;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A variant rule returning the variant of the first rule that returns one.
+ * <p>
+ * The rules are compiled into a flat decision table when this rule is created. Nested first match rules
+ * are inlined, rules that never return a variant are dropped and rules following a rule that always returns
+ * a variant are cut off. The cut off rules are still bound, so that they are validated against the injection. The built-in conditional rules read the spawn location through the shared
+ * {@link EntitySpawnContext}, so the biome, world and temperature are each queried at most once per spawn.
+ * Other (user) rules are kept in the table as they are.
+ * <p>
+ * If any row wraps an {@linkplain AsyncVariantRule asynchronous rule}, the whole table is evaluated asynchronously,
+ * see {@link #getAsyncRule()}.
+ *
+ * @see VariantRule#firstMatch(VariantRule...)
+ */
+final class FirstMatchVariantRule implements VariantRule {
+    private final VariantRule[] table;
+    private final VariantRule[] unreachable; // never applied, only kept to be bound
+    private final @Nullable Set<SpawnContextInput> inputs;
+    private final @Nullable AsyncVariantRule asyncRule;
+
+    FirstMatchVariantRule(final VariantRule... rules) {
+        final List<VariantRule> table = new ArrayList<>(rules.length);
+        final List<VariantRule> unreachable = new ArrayList<>();
+        flatten(rules, table, unreachable);
+        this.table = table.toArray(VariantRule[]::new);
+        this.unreachable = unreachable.toArray(VariantRule[]::new);
+        inputs = collectInputs(this.table);
+        asyncRule = createAsyncRule(this.table);
+    }
+
+    private FirstMatchVariantRule(final VariantRule[] table, final VariantRule[] unreachable) {
+        this.table = table;
+        this.unreachable = unreachable;
+        inputs = collectInputs(table);
+        asyncRule = createAsyncRule(table);
+    }
+
+    /**
+     * Collects the inputs of all the rows, the table is only deterministic if all its rows are.
+     */
+    private static @Nullable Set<SpawnContextInput> collectInputs(final VariantRule[] table) {
+        final Set<SpawnContextInput> inputs = EnumSet.noneOf(SpawnContextInput.class);
+        for (final VariantRule rule : table) {
+            final Set<SpawnContextInput> ruleInputs = rule.getDeterministicInputs();
+            if (ruleInputs == null) return null;
+            inputs.addAll(ruleInputs);
+        }
+        return Collections.unmodifiableSet(inputs);
+    }
+
+    /**
+     * Creates an asynchronous rule evaluating the table, if any of its rows is asynchronous.
+     */
+    private static @Nullable AsyncVariantRule createAsyncRule(final VariantRule[] table) {
+        for (final VariantRule rule : table) {
+            if (rule.getAsyncRule() != null) return (variants, ctx) -> applyAsync(table, 0, variants, ctx);
+        }
+        return null;
+    }
+
+    /**
+     * Evaluates the rows from the given index, waiting for each asynchronous row before moving on to the next one.
+     */
+    private static CompletableFuture<@Nullable BoundEntityVariant> applyAsync(
+            final VariantRule[] table,
+            final int from,
+            final Map<String, BoundEntityVariant> variants,
+            final EntitySpawnContext ctx
+    ) {
+        for (int i = from; i < table.length; i++) {
+            final AsyncVariantRule async = table[i].getAsyncRule();
+            if (async == null) {
+                final BoundEntityVariant variant = table[i].apply(variants, ctx);
+                if (variant != null) return CompletableFuture.completedFuture(variant);
+                continue;
+            }
+            final int next = i + 1;
+            return async.apply(variants, ctx).thenCompose(variant -> variant != null
+                    ? CompletableFuture.completedFuture(variant)
+                    : applyAsync(table, next, variants, ctx));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Appends the rows of the given rules to the table, the rules following a row that always returns a variant
+     * are appended to the unreachable rules instead.
+     *
+     * @return {@code true} if the last appended row always returns a variant, so no rows may follow
+     */
+    private static boolean flatten(
+            final VariantRule[] rules,
+            final List<VariantRule> table,
+            final List<VariantRule> unreachable
+    ) {
+        boolean cut = false;
+        for (final VariantRule rule : rules) {
+            if (cut) {
+                unreachable.add(rule);
+                continue;
+            }
+            if (rule == VariantRules.NONE) continue;
+            if (rule instanceof final FirstMatchVariantRule firstMatch) {
+                cut = flatten(firstMatch.table, table, unreachable);
+                unreachable.addAll(Arrays.asList(firstMatch.unreachable));
+                continue;
+            }
+            table.add(rule);
+            cut = rule instanceof WeightedVariantRule
+                  || rule instanceof final ConditionalVariantRule conditional && conditional.isUnconditional();
+        }
+        return cut;
+    }
+
+    @Override
+    public VariantRule bind(final EntityInjection<?, ?> injection) {
+        final VariantRule[] boundTable = new VariantRule[table.length];
+        for (int i = 0; i < table.length; i++) boundTable[i] = table[i].bind(injection);
+        final VariantRule[] boundUnreachable = new VariantRule[unreachable.length];
+        for (int i = 0; i < unreachable.length; i++) boundUnreachable[i] = unreachable[i].bind(injection);
+        return new FirstMatchVariantRule(boundTable, boundUnreachable);
+    }
+
+    @Override
+    public @Nullable Set<SpawnContextInput> getDeterministicInputs() {
+        return inputs;
+    }
+
+    /**
+     * Returns an asynchronous rule evaluating the whole table if any of its rows is asynchronous.
+     * <p>
+     * The synchronous rows are then evaluated off the main thread as well, against the
+     * {@linkplain EntitySpawnContext#snapshot() snapshot} of the spawn context, so they must not access the entity.
+     *
+     * @return the asynchronous rule evaluating the table, or {@code null} if all the rows are synchronous
+     */
+    @Override
+    public @Nullable AsyncVariantRule getAsyncRule() {
+        return asyncRule;
+    }
+
+    @Override
+    public @Nullable BoundEntityVariant apply(
+            final Map<String, BoundEntityVariant> variants,
+            final EntitySpawnContext ctx
+    ) {
+        for (final VariantRule rule : table) {
+            final BoundEntityVariant variant = rule.apply(variants, ctx);
+            if (variant != null) return variant;
+        }
+        return null;
+    }
+}
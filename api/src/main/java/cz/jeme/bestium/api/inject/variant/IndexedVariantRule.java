@@ -0,0 +1,68 @@
+package cz.jeme.bestium.api.inject.variant;
+
+import cz.jeme.bestium.api.inject.EntityInjection;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A variant rule selecting a variant by its index, either the first or a random one.
+ * <p>
+ * Once bound, the variant list of the injection is indexed directly.
+ *
+ * @see VariantRule#first()
+ * @see VariantRule#random()
+ */
+final class IndexedVariantRule implements VariantRule {
+    private final boolean random;
+    private final @Nullable Map<String, BoundEntityVariant> boundVariants;
+    private final List<BoundEntityVariant> boundVariantList;
+
+    /**
+     * Creates an unbound indexed variant rule.
+     *
+     * @param random {@code true} to select a random variant, {@code false} to select the first variant
+     */
+    IndexedVariantRule(final boolean random) {
+        this(random, null, List.of());
+    }
+
+    private IndexedVariantRule(
+            final boolean random,
+            final @Nullable Map<String, BoundEntityVariant> boundVariants,
+            final List<BoundEntityVariant> boundVariantList
+    ) {
+        this.random = random;
+        this.boundVariants = boundVariants;
+        this.boundVariantList = boundVariantList;
+    }
+
+    @Override
+    public VariantRule bind(final EntityInjection<?, ?> injection) {
+        return new IndexedVariantRule(random, injection.getVariants(), injection.getVariantList());
+    }
+
+    @Override
+    public @Nullable BoundEntityVariant apply(
+            final Map<String, BoundEntityVariant> variants,
+            final EntitySpawnContext ctx
+    ) {
+        if (variants == boundVariants) {
+            final int size = boundVariantList.size();
+            if (size == 0) return null;
+            if (!random || size == 1) return boundVariantList.getFirst();
+            return boundVariantList.get(ctx.getRandom().nextInt(size));
+        }
+
+        // not bound, or applied to a different variants map, walked to the selected index without copying
+        final int size = variants.size();
+        if (size == 0) return null;
+        final Iterator<BoundEntityVariant> iterator = variants.values().iterator();
+        if (random && size > 1) {
+            for (int skip = ctx.getRandom().nextInt(size); skip > 0; skip--) iterator.next();
+        }
+        return iterator.next();
+    }
+}
@@ -0,0 +1,22 @@
+package cz.jeme.bestium.api.inject.variant;
+
+/**
+ * A property of the {@link EntitySpawnContext} a deterministic {@link VariantRule} may read.
+ *
+ * @see VariantRule#getDeterministicInputs()
+ * @see VariantRule#deterministic(VariantRule, SpawnContextInput...)
+ */
+public enum SpawnContextInput {
+    /**
+     * The world the entity is spawning in.
+     *
+     * @see EntitySpawnContext#getWorldKey()
+     */
+    WORLD,
+    /**
+     * The biome the entity is spawning in.
+     *
+     * @see EntitySpawnContext#getBiome()
+     */
+    BIOME
+}
@@ -1,5 +1,6 @@
 package cz.jeme.bestium.api.inject.variant;
 
+import cz.jeme.bestium.api.inject.EntityInjection;
 import cz.jeme.bestium.api.inject.biome.BiomeFilter;
 import cz.jeme.bestium.api.util.BiomeTemperature;
 import net.kyori.adventure.key.Key;
@@ -44,6 +45,54 @@ public interface VariantRule {
             final EntitySpawnContext context
     );
 
+    /**
+     * Binds this rule to the variants of an entity injection.
+     * <p>
+     * Called once when the injection is built, the returned rule is then used for all the spawns of the entity.
+     * Rules referring to variants by ID should resolve them here, so that a misconfigured rule fails
+     * on startup and no IDs have to be looked up on spawn. The built-in rules do so.
+     * <p>
+     * This method must not modify this rule, as it may be shared by multiple injections.
+     * By default, this rule is returned as is.
+     *
+     * @param injection the injection to bind to, its variants are already available
+     * @return the bound rule
+     * @throws IllegalArgumentException if this rule refers to a variant the injection does not have
+     */
+    default VariantRule bind(final EntityInjection<?, ?> injection) {
+        return this;
+    }
+
+    /**
+     * Returns the inputs this rule reads from the {@link EntitySpawnContext}, if this rule is deterministic.
+     * <p>
+     * A deterministic rule always returns the same variant for the same values of its inputs and reads
+     * nothing else. Bestium caches the results of such rules and skips evaluating them when an entity
+     * spawns with inputs seen before.
+     * <p>
+     * The built-in rules that only depend on the biome and world declare their inputs. To declare the inputs
+     * of a custom rule, see {@link #deterministic(VariantRule, SpawnContextInput...)}.
+     * By default, {@code null} is returned.
+     *
+     * @return the inputs of this rule, or {@code null} if this rule is not deterministic
+     */
+    default @Nullable Set<SpawnContextInput> getDeterministicInputs() {
+        return null;
+    }
+
+    /**
+     * Returns the asynchronous rule this rule wraps.
+     * <p>
+     * If the variant rule of an entity injection wraps an asynchronous rule,
+     * Bestium evaluates the asynchronous rule instead of this rule. By default, {@code null} is returned.
+     *
+     * @return the wrapped asynchronous rule, or {@code null} if this rule is synchronous
+     * @see #async(AsyncVariantRule)
+     */
+    default @Nullable AsyncVariantRule getAsyncRule() {
+        return null;
+    }
+
     /**
      * Returns a rule that selects the first variant registered for an entity.
      * If no variants are available, returns {@code null}.
@@ -63,6 +112,7 @@ public interface VariantRule {
     /**
      * Returns a rule that randomly selects one of the available variants.
      * If no variants are available, returns {@code null}.
+     * The random decision is made with {@link EntitySpawnContext#getRandom()}.
      * <p>
      * <strong>Note:</strong> Unless this entity has no variants, this rule will never return {@code null}. Passing it to {@link #firstMatch(VariantRule...)}
      * will result in all following rules being ignored.
@@ -91,12 +141,15 @@ public interface VariantRule {
      * <strong>Note:</strong> This rule will never return {@code null}, passing it to {@link #firstMatch(VariantRule...)}
      * will result in all following rules being ignored.
      * <p>
-     * <strong>Note:</strong> If the rule attempts to select a non-existent variant ID from the provided map,
-     * an {@link IllegalArgumentException} is thrown.
+     * <strong>Note:</strong> If any of the variant IDs with a positive weight does not exist,
+     * an {@link IllegalArgumentException} is thrown when the entity injection is built.
+     * <p>
+     * Every selection takes constant time, no matter how many variants or how large weights there are.
+     * The random decision is made with {@link EntitySpawnContext#getRandom()}.
      *
      * @param weights a map of variant IDs to their selection weight (positive integers)
      * @return a chance based rule
-     * @throws IllegalArgumentException if the {@code weights} map is empty
+     * @throws IllegalArgumentException if the {@code weights} map is empty or contains no positive weight
      */
     static VariantRule weighted(final Map<String, @Positive Integer> weights) {
         return VariantRules.weighted(weights);
@@ -118,8 +171,8 @@ public interface VariantRule {
      * <strong>Note:</strong> This rule will never return {@code null}, passing it to {@link #firstMatch(VariantRule...)}
      * will result in all following rules being ignored.
      * <p>
-     * <strong>Note:</strong> If the variant ID does not exist and this rule is applied,
-     * an {@link IllegalArgumentException} is thrown.
+     * <strong>Note:</strong> If the variant ID does not exist, an {@link IllegalArgumentException}
+     * is thrown when the entity injection is built.
      *
      * @param variantId the ID of the variant to apply
      * @return a variant rule always returning a variant matching the provided ID
@@ -142,8 +195,8 @@ public interface VariantRule {
      * <p>
      * This rule is designed to be chained using {@link #firstMatch(VariantRule...)}.
      * <p>
-     * <strong>Note:</strong> If the variant ID does not exist and this rule is applied,
-     * an {@link IllegalArgumentException} is thrown.
+     * <strong>Note:</strong> If the variant ID does not exist, an {@link IllegalArgumentException}
+     * is thrown when the entity injection is built.
      *
      * @param filter    the biome filter to test
      * @param variantId the ID of the variant to apply
@@ -167,8 +220,8 @@ public interface VariantRule {
      * <p>
      * This rule is designed to be chained using {@link #firstMatch(VariantRule...)}.
      * <p>
-     * <strong>Note:</strong> If the variant ID does not exist and this rule is applied,
-     * an {@link IllegalArgumentException} is thrown.
+     * <strong>Note:</strong> If the variant ID does not exist, an {@link IllegalArgumentException}
+     * is thrown when the entity injection is built.
      *
      * @param worldKey  the world key to match
      * @param variantId the ID of the variant to apply
@@ -196,8 +249,8 @@ public interface VariantRule {
      * <p>
      * This rule is designed to be chained using {@link #firstMatch(VariantRule...)}.
      * <p>
-     * <strong>Note:</strong> If the variant ID does not exist and this rule is applied,
-     * an {@link IllegalArgumentException} is thrown.
+     * <strong>Note:</strong> If the variant ID does not exist, an {@link IllegalArgumentException}
+     * is thrown when the entity injection is built.
      *
      * @param worldKeys the world keys to match
      * @param variantId the ID of the variant to apply
@@ -221,8 +274,8 @@ public interface VariantRule {
      * <p>
      * This rule is designed to be chained using {@link #firstMatch(VariantRule...)}.
      * <p>
-     * <strong>Note:</strong> If the variant ID does not exist and this rule is applied,
-     * an {@link IllegalArgumentException} is thrown.
+     * <strong>Note:</strong> If the variant ID does not exist, an {@link IllegalArgumentException}
+     * is thrown when the entity injection is built.
      *
      * @param temperatureRange the temperature range when the variant is applied
      * @param variantId        the ID of the variant to apply
@@ -284,4 +337,45 @@ public interface VariantRule {
     static VariantRule firstMatch(final VariantRule... rules) {
         return VariantRules.firstMatch(rules);
     }
+
+    /**
+     * Declares a rule deterministic, so that its results may be cached.
+     * <p>
+     * For example:
+     * <pre>{@code
+     * VariantRule.deterministic(
+     *    (variants, ctx) -> isSnowy(ctx.getBiome()) ? variants.get("snowy") : null,
+     *    SpawnContextInput.BIOME
+     * );
+     * }</pre>
+     * <p>
+     * <strong>Note:</strong> The rule must return the same variant for the same values of the provided inputs
+     * and must not read anything else, otherwise the cached results will be wrong.
+     *
+     * @param rule   the deterministic rule
+     * @param inputs the inputs the rule reads
+     * @return the rule declared deterministic
+     * @see #getDeterministicInputs()
+     */
+    static VariantRule deterministic(final VariantRule rule, final SpawnContextInput... inputs) {
+        return new DeterministicVariantRule(rule, Set.of(inputs));
+    }
+
+    /**
+     * Wraps an asynchronous rule, so that it can be used as the variant rule of an entity injection.
+     * <p>
+     * The asynchronous rule is evaluated off the main thread, see {@link AsyncVariantRule#apply(Map, EntitySpawnContext)}.
+     * <p>
+     * The returned rule may also be nested in {@link #firstMatch(VariantRule...)} and
+     * {@link #deterministic(VariantRule, SpawnContextInput...)}, which then evaluate asynchronously as well.
+     * <strong>Note:</strong> The returned rule cannot be applied synchronously on the main thread,
+     * off the main thread it blocks until the asynchronous rule completes.
+     *
+     * @param rule the asynchronous rule
+     * @return a rule wrapping the asynchronous rule
+     * @see #getAsyncRule()
+     */
+    static VariantRule async(final AsyncVariantRule rule) {
+        return new AsyncVariantRuleAdapter(rule);
+    }
 }
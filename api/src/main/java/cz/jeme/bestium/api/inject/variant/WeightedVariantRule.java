@@ -0,0 +1,154 @@
+package cz.jeme.bestium.api.inject.variant;
+
+import cz.jeme.bestium.api.inject.EntityInjection;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * A variant rule selecting variants based on weighted chances.
+ * <p>
+ * Uses Vose's alias method, which makes every selection constant time
+ * and the memory proportional to the number of variants, regardless of the weights.
+ * The alias table is computed with integers only, so the selection chances are exact.
+ * <p>
+ * Once bound, the variant IDs are already resolved to the variants of the injection.
+ *
+ * @see VariantRule#weighted(Map)
+ */
+final class WeightedVariantRule implements VariantRule {
+    private final Map<String, Integer> weights;
+    private final String[] variantIds;
+    private final long total;
+    // column i keeps variant i if a random number in [0, total) is below thresholds[i], otherwise aliases[i]
+    private final long[] thresholds;
+    private final int[] aliases;
+
+    private volatile @Nullable Resolution resolution;
+
+    /**
+     * The variant IDs of this rule resolved against a variants map.
+     *
+     * @param variants the variants map the IDs were resolved against
+     * @param resolved the resolved variants, indexed the same way as {@link #variantIds}
+     */
+    private record Resolution(Map<String, BoundEntityVariant> variants, BoundEntityVariant[] resolved) {
+    }
+
+    WeightedVariantRule(final Map<String, Integer> weights) {
+        if (weights.isEmpty()) throw new IllegalArgumentException("Weights map must not be empty");
+        this.weights = Map.copyOf(weights);
+
+        final List<String> ids = new ArrayList<>(weights.size());
+        final List<Integer> positiveWeights = new ArrayList<>(weights.size());
+        long sum = 0;
+        for (final Map.Entry<String, Integer> entry : weights.entrySet()) {
+            final int weight = entry.getValue();
+            if (weight <= 0) continue;
+            ids.add(entry.getKey());
+            positiveWeights.add(weight);
+            sum += weight;
+        }
+        final int size = ids.size();
+        if (size == 0) throw new IllegalArgumentException("Weights map must contain at least one positive weight");
+
+        variantIds = ids.toArray(String[]::new);
+        total = sum;
+        thresholds = new long[size];
+        aliases = new int[size];
+
+        // scale the weights by the number of columns, so that every column holds exactly 'total'
+        final long[] scaled = new long[size];
+        final Deque<Integer> small = new ArrayDeque<>();
+        final Deque<Integer> large = new ArrayDeque<>();
+        for (int i = 0; i < size; i++) {
+            scaled[i] = positiveWeights.get(i) * (long) size;
+            (scaled[i] < total ? small : large).push(i);
+        }
+        while (!small.isEmpty() && !large.isEmpty()) {
+            final int less = small.pop();
+            final int more = large.pop();
+            thresholds[less] = scaled[less];
+            aliases[less] = more;
+            // the larger variant fills the rest of the smaller variant's column
+            scaled[more] -= total - scaled[less];
+            (scaled[more] < total ? small : large).push(more);
+        }
+        // the remaining columns are full, with integer arithmetic this only ever leaves large ones
+        while (!large.isEmpty()) fill(large.pop());
+        while (!small.isEmpty()) fill(small.pop());
+    }
+
+    private void fill(final int column) {
+        thresholds[column] = total;
+        aliases[column] = column;
+    }
+
+    private WeightedVariantRule(final WeightedVariantRule rule, final Resolution resolution) {
+        weights = rule.weights;
+        variantIds = rule.variantIds;
+        total = rule.total;
+        thresholds = rule.thresholds;
+        aliases = rule.aliases;
+        this.resolution = resolution;
+    }
+
+    private Resolution resolve(
+            final Map<String, BoundEntityVariant> variants,
+            final EntityInjection<?, ?> injection
+    ) {
+        final BoundEntityVariant[] resolved = new BoundEntityVariant[variantIds.length];
+        final List<String> unknownIds = new ArrayList<>();
+        for (int i = 0; i < variantIds.length; i++) {
+            final BoundEntityVariant variant = variants.get(variantIds[i]);
+            if (variant == null) unknownIds.add(variantIds[i]);
+            resolved[i] = variant;
+        }
+        if (!unknownIds.isEmpty())
+            throw VariantRules.unknownVariant(variants, injection, unknownIds.toArray(String[]::new));
+        return new Resolution(variants, resolved);
+    }
+
+    @Override
+    public VariantRule bind(final EntityInjection<?, ?> injection) {
+        return new WeightedVariantRule(this, resolve(injection.getVariants(), injection));
+    }
+
+    @Override
+    public BoundEntityVariant apply(final Map<String, BoundEntityVariant> variants, final EntitySpawnContext ctx) {
+        Resolution resolution = this.resolution;
+        if (resolution == null || resolution.variants != variants) {
+            // not bound, or applied to a different variants map than the one this rule was bound to
+            resolution = resolve(variants, ctx.getInjection());
+            this.resolution = resolution;
+        }
+        return resolution.resolved[sample(ctx.getRandom())];
+    }
+
+    /**
+     * Picks a variant from the alias table.
+     *
+     * @param random the random generator to use
+     * @return the index of the picked variant in {@link #variantIds}
+     */
+    int sample(final RandomGenerator random) {
+        final int column = random.nextInt(variantIds.length);
+        return random.nextLong(total) < thresholds[column] ? column : aliases[column];
+    }
+
+    String variantId(final int index) {
+        return variantIds[index];
+    }
+
+    @Override
+    public String toString() {
+        return "WeightedVariantRule{" +
+               "weights=" + weights +
+               '}';
+    }
+}
@@ -0,0 +1,133 @@
+package cz.jeme.bestium.api.inject.variant;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WeightedVariantRuleTest {
+    /**
+     * Returns a fixed column and a fixed number below the total.
+     */
+    private static final class FixedRandom implements RandomGenerator {
+        private final int column;
+        private final long value;
+
+        private FixedRandom(final int column, final long value) {
+            this.column = column;
+            this.value = value;
+        }
+
+        @Override
+        public int nextInt(final int bound) {
+            return column;
+        }
+
+        @Override
+        public long nextLong(final long bound) {
+            return value;
+        }
+
+        @Override
+        public long nextLong() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Samples every combination of a column and a number below the total once,
+     * so every variant must be picked exactly its weight times the number of columns.
+     */
+    private static Map<String, Integer> sampleAll(final Map<String, Integer> weights) {
+        final WeightedVariantRule rule = new WeightedVariantRule(weights);
+        final long columns = weights.values().stream().filter(weight -> weight > 0).count();
+        final long total = weights.values().stream().filter(weight -> weight > 0).mapToLong(Integer::longValue).sum();
+
+        final Map<String, Integer> counts = new HashMap<>();
+        for (int column = 0; column < columns; column++) {
+            for (long value = 0; value < total; value++) {
+                final String id = rule.variantId(rule.sample(new FixedRandom(column, value)));
+                counts.merge(id, 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    private static void assertExact(final Map<String, Integer> weights) {
+        final int columns = (int) weights.values().stream().filter(weight -> weight > 0).count();
+        final Map<String, Integer> expected = new HashMap<>();
+        weights.forEach((id, weight) -> {
+            if (weight > 0) expected.put(id, weight * columns);
+        });
+        assertEquals(expected, sampleAll(weights));
+    }
+
+    @Test
+    void chancesAreExact() {
+        final Map<String, Integer> weights = new LinkedHashMap<>();
+        weights.put("a", 1);
+        weights.put("b", 2);
+        weights.put("c", 3);
+        assertExact(weights);
+    }
+
+    @Test
+    void unevenWeightsAreExact() {
+        final Map<String, Integer> weights = new LinkedHashMap<>();
+        weights.put("rare", 1);
+        weights.put("common", 97);
+        weights.put("uncommon", 13);
+        weights.put("odd", 7);
+        weights.put("even", 7);
+        assertExact(weights);
+    }
+
+    @Test
+    void nonPositiveWeightsAreNeverPicked() {
+        final Map<String, Integer> weights = new LinkedHashMap<>();
+        weights.put("zero", 0);
+        weights.put("a", 5);
+        weights.put("negative", -3);
+        weights.put("b", 2);
+        assertExact(weights);
+    }
+
+    @Test
+    void singleVariantIsAlwaysPicked() {
+        assertEquals(Map.of("only", 4), sampleAll(Map.of("only", 4)));
+    }
+
+    @Test
+    void largeWeightsDoNotOverflow() {
+        final Map<String, Integer> weights = new LinkedHashMap<>();
+        weights.put("a", Integer.MAX_VALUE);
+        weights.put("b", Integer.MAX_VALUE);
+        weights.put("c", 1);
+        final WeightedVariantRule rule = new WeightedVariantRule(weights);
+
+        // the scaled weight of 'c' takes exactly the first three numbers of a single column
+        final long total = 2L * Integer.MAX_VALUE + 1;
+        int picked = 0;
+        for (int column = 0; column < 3; column++) {
+            for (final long value : new long[]{0, 1, 2, total - 3, total - 2, total - 1}) {
+                if (rule.variantId(rule.sample(new FixedRandom(column, value))).equals("c")) picked++;
+            }
+        }
+        assertEquals(3, picked);
+    }
+
+    @Test
+    void emptyWeightsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new WeightedVariantRule(Map.of()));
+    }
+
+    @Test
+    void weightsWithoutPositiveWeightAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new WeightedVariantRule(Map.of("a", 0, "b", -1)));
+    }
+}
@@ -0,0 +1,17 @@
+plugins {
+    id("jmh-conventions")
+    id("io.papermc.paperweight.userdev")
+}
+
+dependencies {
+    jmhImplementation(project(":core"))
+    jmhImplementation(project(":api"))
+    paperweight.paperDevBundle("${libs.versions.minecraft.get()}.build.+")
+}
+
+configurations {
+    // the server is only provided for compilation, but the benchmarks have to run it
+    jmhImplementation {
+        extendsFrom(compileOnly.get())
+    }
+}
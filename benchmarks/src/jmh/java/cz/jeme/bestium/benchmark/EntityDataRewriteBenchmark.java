@@ -0,0 +1,91 @@
+package cz.jeme.bestium.benchmark;
+
+import cz.jeme.bestium.EntityManagerImpl;
+import net.minecraft.network.syncher.SynchedEntityData;
+import org.jspecify.annotations.NullMarked;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code EntityManagerImpl#modifyEntityDataIfInjected}, called for every entity data packet
+ * sent to a player.
+ */
+@NullMarked
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityDataRewriteBenchmark {
+    private static final int ENTITIES = 4096; // must be a power of two
+
+    /**
+     * The number of data values in a packet.
+     */
+    @Param({"1", "3", "12", "18"})
+    public int size;
+
+    /**
+     * The share of packets sent for injected entities.
+     */
+    @Param({"0.0", "0.05", "0.5", "1.0"})
+    public double hitRate;
+
+    /**
+     * Whether injected entities are hidden in favor of their models.
+     */
+    @Param({"false", "true"})
+    public boolean betterModelLoaded;
+
+    private final int[] entityIds = new int[ENTITIES];
+    private List<SynchedEntityData.DataValue<?>> data = List.of();
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ServerBootstrap.ensure();
+        data = EntityDataValues.create(size);
+        final SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < ENTITIES; i++) {
+            final int entityId = i + 1;
+            entityIds[i] = entityId;
+            if (random.nextDouble() < hitRate)
+                EntityManagerImpl.INSTANCE.trackEntity(entityId, EntityDataValues.LIVING_CLIENT_DATA_MASK);
+        }
+        // visit the entities in an order the branch predictor cannot learn
+        for (int i = ENTITIES - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final int entityId = entityIds[i];
+            entityIds[i] = entityIds[j];
+            entityIds[j] = entityId;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (final int entityId : entityIds)
+            EntityManagerImpl.INSTANCE.untrackEntity(entityId);
+    }
+
+    @Benchmark
+    public List<SynchedEntityData.DataValue<?>> modifyEntityDataIfInjected() {
+        final int entityId = entityIds[cursor++ & (ENTITIES - 1)];
+        return EntityManagerImpl.INSTANCE.modifyEntityDataIfInjected(entityId, data, betterModelLoaded);
+    }
+}
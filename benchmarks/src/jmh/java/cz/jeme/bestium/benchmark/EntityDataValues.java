@@ -0,0 +1,64 @@
+package cz.jeme.bestium.benchmark;
+
+import net.minecraft.network.syncher.EntityDataSerializers;
+import net.minecraft.network.syncher.SynchedEntityData;
+import net.minecraft.world.entity.Pose;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Synthetic entity data resembling what a mob sends, ordered by data ID.
+ */
+@NullMarked
+final class EntityDataValues {
+    /**
+     * The client data mask compiled from the default filter of living entities (IDs {@code 0} to {@code 14}).
+     */
+    static final long LIVING_CLIENT_DATA_MASK = (1L << 15) - 1;
+
+    private EntityDataValues() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Creates the first {@code size} data values of a mob.
+     * <p>
+     * A size of {@code 1} is a shared flags update, {@code 3} a typical dirty data update,
+     * {@code 12} and more resemble the initial data sent when the entity is added.
+     *
+     * @param size the number of data values, at most {@code 18}
+     * @return the data values
+     */
+    static List<SynchedEntityData.DataValue<?>> create(final int size) {
+        final List<SynchedEntityData.DataValue<?>> all = List.of(
+                // entity
+                new SynchedEntityData.DataValue<>(0, EntityDataSerializers.BYTE, (byte) 0),
+                new SynchedEntityData.DataValue<>(1, EntityDataSerializers.INT, 300),
+                new SynchedEntityData.DataValue<>(2, EntityDataSerializers.OPTIONAL_COMPONENT, Optional.empty()),
+                new SynchedEntityData.DataValue<>(3, EntityDataSerializers.BOOLEAN, false),
+                new SynchedEntityData.DataValue<>(4, EntityDataSerializers.BOOLEAN, false),
+                new SynchedEntityData.DataValue<>(5, EntityDataSerializers.BOOLEAN, false),
+                new SynchedEntityData.DataValue<>(6, EntityDataSerializers.POSE, Pose.STANDING),
+                new SynchedEntityData.DataValue<>(7, EntityDataSerializers.INT, 0),
+                // living entity
+                new SynchedEntityData.DataValue<>(8, EntityDataSerializers.BYTE, (byte) 0),
+                new SynchedEntityData.DataValue<>(9, EntityDataSerializers.FLOAT, 20F),
+                new SynchedEntityData.DataValue<>(10, EntityDataSerializers.PARTICLES, List.of()),
+                new SynchedEntityData.DataValue<>(11, EntityDataSerializers.BOOLEAN, false),
+                new SynchedEntityData.DataValue<>(12, EntityDataSerializers.INT, 0),
+                new SynchedEntityData.DataValue<>(13, EntityDataSerializers.INT, 0),
+                new SynchedEntityData.DataValue<>(14, EntityDataSerializers.OPTIONAL_BLOCK_POS, Optional.empty()),
+                // mob and the entity itself, dropped by the default filter
+                new SynchedEntityData.DataValue<>(15, EntityDataSerializers.BYTE, (byte) 0),
+                new SynchedEntityData.DataValue<>(16, EntityDataSerializers.BOOLEAN, false),
+                new SynchedEntityData.DataValue<>(17, EntityDataSerializers.INT, 0)
+        );
+        if (size > all.size())
+            throw new IllegalArgumentException("Size must be at most " + all.size() + ": " + size);
+        // the packet holds a mutable list
+        return new ArrayList<>(all.subList(0, size));
+    }
+}
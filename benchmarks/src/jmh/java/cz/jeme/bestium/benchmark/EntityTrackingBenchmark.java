@@ -0,0 +1,81 @@
+package cz.jeme.bestium.benchmark;
+
+import cz.jeme.bestium.EntityManagerImpl;
+import org.jspecify.annotations.NullMarked;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures tracking injected entities, done for every injected entity that is created and again when it is added
+ * to the world, and untracking them once they are removed.
+ */
+@NullMarked
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityTrackingBenchmark {
+    private static final int CHURN = 1024; // must be a power of two
+
+    /**
+     * The number of injected entities tracked for the whole benchmark.
+     */
+    @Param({"100", "10000"})
+    public int trackedEntities;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ServerBootstrap.ensure();
+        // entity IDs are assigned sequentially, the churned entities come after the tracked ones
+        for (int entityId = 1; entityId <= trackedEntities; entityId++)
+            EntityManagerImpl.INSTANCE.trackEntity(entityId, EntityDataValues.LIVING_CLIENT_DATA_MASK);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (int entityId = 1; entityId <= trackedEntities + CHURN; entityId++)
+            EntityManagerImpl.INSTANCE.untrackEntity(entityId);
+    }
+
+    private int nextChurnedEntityId() {
+        return trackedEntities + 1 + (cursor++ & (CHURN - 1));
+    }
+
+    /**
+     * An entity is created and added to the world, tracking it twice.
+     */
+    @Benchmark
+    public void trackEntity() {
+        final int entityId = nextChurnedEntityId();
+        EntityManagerImpl.INSTANCE.trackEntity(entityId, EntityDataValues.LIVING_CLIENT_DATA_MASK);
+        EntityManagerImpl.INSTANCE.trackEntity(entityId, EntityDataValues.LIVING_CLIENT_DATA_MASK);
+    }
+
+    /**
+     * An entity is created, added to the world and removed again.
+     */
+    @Benchmark
+    public void trackAndUntrackEntity() {
+        final int entityId = nextChurnedEntityId();
+        EntityManagerImpl.INSTANCE.trackEntity(entityId, EntityDataValues.LIVING_CLIENT_DATA_MASK);
+        EntityManagerImpl.INSTANCE.trackEntity(entityId, EntityDataValues.LIVING_CLIENT_DATA_MASK);
+        EntityManagerImpl.INSTANCE.untrackEntity(entityId);
+    }
+}
@@ -0,0 +1,27 @@
+package cz.jeme.bestium.benchmark;
+
+import net.minecraft.SharedConstants;
+import net.minecraft.server.Bootstrap;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Bootstraps the vanilla registries, so that entity data serializers and entity classes can be initialized
+ * outside a running server.
+ */
+@NullMarked
+final class ServerBootstrap {
+    static {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+    }
+
+    private ServerBootstrap() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Makes sure the registries are bootstrapped, does nothing if they already are.
+     */
+    static void ensure() {
+    }
+}
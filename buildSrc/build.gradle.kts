@@ -11,6 +11,7 @@ repositories {
 dependencies {
     implementation(libs.kotlin.plugin)
     implementation(libs.paperweight.userdev.plugin)
+    implementation(libs.jmh.plugin)
 
     // this magic comes from https://github.com/gradle/gradle/issues/15383
     implementation(files(libs.javaClass.superclass.protectionDomain.codeSource.location))
@@ -19,4 +19,14 @@ java {
     targetCompatibility = version
     if (JavaVersion.current() < version)
         toolchain.languageVersion = JavaLanguageVersion.of(targetJavaVersion)
-}
\ No newline at end of file
+}
+
+dependencies {
+    testImplementation(platform(libs.junit.bom))
+    testImplementation(libs.junit.jupiter)
+    testRuntimeOnly(libs.junit.platform.launcher)
+}
+
+tasks.test {
+    useJUnitPlatform()
+}
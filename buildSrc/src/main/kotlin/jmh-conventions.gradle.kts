@@ -0,0 +1,16 @@
+import org.gradle.accessors.dm.LibrariesForLibs
+
+plugins {
+    id("java-conventions")
+    id("me.champeau.jmh")
+}
+
+val libs = the<LibrariesForLibs>()
+
+jmh {
+    jmhVersion = libs.versions.jmh.get()
+    // e.g. -Pjmh.includes=EntityDataRewrite -Pjmh.profilers=gc
+    providers.gradleProperty("jmh.includes").orNull?.let { includes.add(it) }
+    providers.gradleProperty("jmh.profilers").orNull?.let { profilers.addAll(it.split(',')) }
+    resultFormat = "JSON"
+}
@@ -0,0 +1,54 @@
+package cz.jeme.bestium.inject;
+
+import net.minecraft.world.entity.EntityType;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Bestium data stored directly on every {@link EntityType}, implemented by {@code EntityTypeMixin}.
+ * <p>
+ * Reading this data is a single field read, which is why it is preferred over map lookups
+ * on paths executed for every (even vanilla) entity.
+ */
+@NullMarked
+public interface BestiumEntityType {
+    /**
+     * Returns the Bestium data of the given entity type.
+     *
+     * @param type the entity type
+     * @return the Bestium data of the entity type
+     */
+    static BestiumEntityType of(final EntityType<?> type) {
+        return (BestiumEntityType) (Object) type;
+    }
+
+    /**
+     * Returns whether this entity type was injected by Bestium.
+     *
+     * @return {@code true} if this type is injected, {@code false} otherwise
+     */
+    boolean bestium$isInjected();
+
+    /**
+     * Returns the backing type of this entity type.
+     *
+     * @return the backing type, or {@code null} if this type is not injected
+     */
+    @Nullable
+    EntityType<?> bestium$getBackingType();
+
+    /**
+     * Returns the compiled client data mask of this entity type.
+     *
+     * @return the client data mask, or {@code 0} if this type is not injected
+     */
+    long bestium$getClientDataMask();
+
+    /**
+     * Marks this entity type as injected by Bestium.
+     *
+     * @param backingType    the backing type of this entity type
+     * @param clientDataMask the compiled client data mask of this entity type
+     */
+    void bestium$inject(final EntityType<?> backingType, final long clientDataMask);
+}
@@ -16,6 +16,6 @@ abstract class EntityTooltipInfoMixin {
             name = "type"
     )
     private static EntityType<?> modifyEntityType(final EntityType<?> type) {
-        return EntityManagerImpl.INSTANCE.remapType(type);
+        return EntityManagerImpl.INSTANCE.remapTooltipType(type);
     }
 }
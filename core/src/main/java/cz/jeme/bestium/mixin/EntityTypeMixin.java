@@ -0,0 +1,39 @@
+package cz.jeme.bestium.mixin;
+
+import cz.jeme.bestium.inject.BestiumEntityType;
+import net.minecraft.world.entity.EntityType;
+import org.jspecify.annotations.Nullable;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+
+@Mixin(EntityType.class)
+abstract class EntityTypeMixin implements BestiumEntityType {
+    @Unique
+    private boolean bestium$injected;
+    @Unique
+    private @Nullable EntityType<?> bestium$backingType;
+    @Unique
+    private long bestium$clientDataMask;
+
+    @Override
+    public boolean bestium$isInjected() {
+        return bestium$injected;
+    }
+
+    @Override
+    public @Nullable EntityType<?> bestium$getBackingType() {
+        return bestium$backingType;
+    }
+
+    @Override
+    public long bestium$getClientDataMask() {
+        return bestium$clientDataMask;
+    }
+
+    @Override
+    public void bestium$inject(final EntityType<?> backingType, final long clientDataMask) {
+        bestium$backingType = backingType;
+        bestium$clientDataMask = clientDataMask;
+        bestium$injected = true;
+    }
+}
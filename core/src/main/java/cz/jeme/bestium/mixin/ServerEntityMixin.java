@@ -0,0 +1,24 @@
+package cz.jeme.bestium.mixin;
+
+import com.llamalad7.mixinextras.injector.WrapWithCondition;
+import cz.jeme.bestium.EntityManagerImpl;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientboundSetEntityDataPacket;
+import net.minecraft.server.level.ServerEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+
+@Mixin(ServerEntity.class)
+abstract class ServerEntityMixin {
+    @WrapWithCondition(
+            method = "sendDirtyEntityData",
+            at = @At(
+                    value = "INVOKE",
+                    target = "Lnet/minecraft/server/level/ServerEntity;broadcastAndSend(Lnet/minecraft/network/protocol/Packet;)V"
+            )
+    )
+    private boolean broadcastIfNotRedundant(final ServerEntity instance, final Packet<?> packet) {
+        return !(packet instanceof final ClientboundSetEntityDataPacket dataPacket)
+               || EntityManagerImpl.INSTANCE.shouldBroadcastEntityData(dataPacket);
+    }
+}
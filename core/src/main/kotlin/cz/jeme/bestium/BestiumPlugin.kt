@@ -6,7 +6,9 @@ import cz.jeme.bestium.command.SpawnEggCommand
 import cz.jeme.bestium.command.SummonCommand
 import cz.jeme.bestium.config.logNormal
 import cz.jeme.bestium.config.logVerbose
+import cz.jeme.bestium.index.EntityIndexes
 import cz.jeme.bestium.inject.EntityInjectorImpl
+import cz.jeme.bestium.persistence.VariantIdTable
 import cz.jeme.bestium.util.storeApiInstance
 import io.papermc.paper.plugin.lifecycle.event.types.LifecycleEvents
 import net.kyori.adventure.key.Key
@@ -39,6 +41,9 @@ internal object BestiumPlugin : JavaPlugin(), Bestium {
             )
         }
 
+        if (logVerbose) logger.info("Loading variant id tables")
+        VariantIdTable.registerAll(EntityInjectorImpl.injections.values)
+
         PluginSupportImpl.betterModelHook?.register()
 
         if (logVerbose) logger.info("Registering commands")
@@ -53,6 +58,7 @@ internal object BestiumPlugin : JavaPlugin(), Bestium {
         fun Listener.registerEvents() = Bukkit.getPluginManager().registerEvents(this, this@BestiumPlugin)
 
         EntityManagerImpl.registerEvents()
+        EntityIndexes.registerEvents()
 
         if (logVerbose) logger.info("Registering entity translations")
         EntityInjectorImpl.injections.values.forEach(EntityTranslator::addInjection)
@@ -61,5 +67,10 @@ internal object BestiumPlugin : JavaPlugin(), Bestium {
         if (logNormal) logger.info("Bestium enabled successfully (took ${System.currentTimeMillis() - start} ms)")
     }
 
+    override fun onDisable() {
+        EntityManagerImpl.shutdown()
+        EntityIndexes.closeAll()
+    }
+
     override fun createKey(@KeyPattern.Value key: String): NamespacedKey = NamespacedKey(this, key)
 }
@@ -2,224 +2,606 @@ package cz.jeme.bestium
 
 import com.destroystokyo.paper.event.entity.EntityAddToWorldEvent
 import com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent
+import cz.jeme.bestium.api.EntityDataMigration
 import cz.jeme.bestium.api.EntityManager
+import cz.jeme.bestium.api.RewriteSite
+import cz.jeme.bestium.api.VariantReroll
 import cz.jeme.bestium.api.inject.EntityInjection
+import cz.jeme.bestium.api.inject.variant.AsyncVariantRule
 import cz.jeme.bestium.api.inject.variant.BoundEntityVariant
 import cz.jeme.bestium.api.inject.variant.EntitySpawnContext
+import cz.jeme.bestium.config.Config
+import cz.jeme.bestium.config.logNormal
+import cz.jeme.bestium.index.EntityIndexes
 import cz.jeme.bestium.inject.EntityInjectorImpl
+import cz.jeme.bestium.inject.backingType
+import cz.jeme.bestium.inject.clientDataMask
+import cz.jeme.bestium.inject.isInjected
+import cz.jeme.bestium.jfr.ModelApplyEvent
+import cz.jeme.bestium.jfr.PacketRewriteEvent
+import cz.jeme.bestium.jfr.PostInitializeEvent
+import cz.jeme.bestium.jfr.VariantRuleEvent
+import cz.jeme.bestium.migration.EntityMigrator
+import cz.jeme.bestium.migration.MigrationException
+import cz.jeme.bestium.persistence.EntityState
+import cz.jeme.bestium.persistence.NO_VARIANT_INDEX
 import cz.jeme.bestium.persistence.PersistentData
-import it.unimi.dsi.fastutil.ints.IntOpenHashSet
+import cz.jeme.bestium.persistence.VariantIdTable
+import cz.jeme.bestium.stats.PostInitializationStatisticsImpl
+import cz.jeme.bestium.stats.RewriteStatisticsImpl
+import cz.jeme.bestium.util.ConcurrentIntLongMap
+import cz.jeme.bestium.util.ConcurrentIntSet
+import cz.jeme.bestium.util.TimeSlicedQueue
+import cz.jeme.bestium.variant.VariantRuleCache
+import net.minecraft.network.VarInt
+import net.minecraft.network.protocol.game.ClientboundSetEntityDataPacket
 import net.minecraft.network.syncher.SynchedEntityData
 import net.minecraft.world.entity.Entity
 import net.minecraft.world.entity.EntitySpawnReason
 import net.minecraft.world.entity.EntityType
-import net.minecraft.world.entity.LivingEntity
+import org.bukkit.Bukkit
 import org.bukkit.Location
+import org.bukkit.World
 import org.bukkit.craftbukkit.CraftWorld
+import org.bukkit.craftbukkit.entity.CraftEntity
 import org.bukkit.craftbukkit.util.CraftLocation
 import org.bukkit.event.EventHandler
 import org.bukkit.event.EventPriority
 import org.bukkit.event.Listener
 import org.bukkit.event.entity.CreatureSpawnEvent
+import org.bukkit.event.server.PluginEnableEvent
+import org.bukkit.event.world.WorldUnloadEvent
+import java.util.UUID
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.LongAdder
 import java.util.function.Consumer
-import kotlin.experimental.and
-import kotlin.experimental.or
 import org.bukkit.entity.Entity as BukkitEntity
 
-const val CURRENT_DATA_VERSION = 1
+const val CURRENT_DATA_VERSION = 3
 
 const val NO_VARIANT_ID = "NONE"
 
-fun fetchDataVersion(entity: BukkitEntity): Int {
-    return PersistentData.BESTIUM_DATA_VERSION[entity] ?: -1
-}
+private fun Long.allowsDataId(id: Int) = id < Long.SIZE_BITS && (this ushr id) and 1L != 0L
 
 object EntityManagerImpl : EntityManager, Listener {
 
     // Mixins start
 
-    private val noVariantEntityIds = IntOpenHashSet()
+    private val addEntityStatistics = RewriteStatisticsImpl[RewriteSite.ADD_ENTITY_PACKET]
+    private val entityDataStatistics = RewriteStatisticsImpl[RewriteSite.ENTITY_DATA_PACKET]
+    private val entityDataBroadcastStatistics = RewriteStatisticsImpl[RewriteSite.ENTITY_DATA_BROADCAST]
+    private val tooltipStatistics = RewriteStatisticsImpl[RewriteSite.ENTITY_TOOLTIP]
+    private val trackingStatistics = RewriteStatisticsImpl[RewriteSite.ENTITY_TRACKING]
 
-    private val injectedEntityIds = IntOpenHashSet()
-    private val injectedLivingEntityIds = IntOpenHashSet()
+    @JvmName("remapAddEntityType")
+    internal fun remapAddEntityType(type: EntityType<*>) = remapType(type, addEntityStatistics)
 
-    @JvmName("trackEntityIfInjected")
-    internal fun trackEntityIfInjected(entity: Entity) {
-        isInjected(entity) || return
-        injectedEntityIds.add(entity.id)
-        if (entity is LivingEntity) injectedLivingEntityIds.add(entity.id)
+    @JvmName("remapTooltipType")
+    internal fun remapTooltipType(type: EntityType<*>) = remapType(type, tooltipStatistics)
+
+    private fun remapType(type: EntityType<*>, statistics: RewriteStatisticsImpl): EntityType<*> {
+        val start = statistics.startSample()
+        val backingType = type.backingType
+        statistics.record(start, backingType != null)
+        return backingType ?: type
     }
 
-    private val ENTITY_DATA_ID_FILTER = { data: SynchedEntityData.DataValue<*> ->
-        // https://minecraft.wiki/w/Java_Edition_protocol/Entity_metadata#Entity
-        data.id <= 7
+    // written on the main thread, but read wherever packets are constructed (e.g., async tracker threads)
+    private val noVariantEntityIds = ConcurrentIntSet()
+
+    // entities waiting in a post-initialization queue, hidden from players until they are processed
+    private val pendingPostInitEntityIds = ConcurrentIntSet()
+
+    // entity ID -> compiled client data mask, an entity is injected if it has a (non-zero) mask
+    private val injectedEntityDataMasks = ConcurrentIntLongMap()
+
+    /**
+     * Starts tracking an injected entity, called from the entity factories of injected types
+     * and again when the entity is added to the world (in case the entity was constructed directly).
+     */
+    internal fun trackEntity(entity: Entity) = trackEntity(entity.id, entity.type.clientDataMask)
+
+    @JvmName("trackEntity")
+    internal fun trackEntity(entityId: Int, clientDataMask: Long) {
+        val start = trackingStatistics.startSample()
+        val newlyTracked = entityId !in injectedEntityDataMasks
+        injectedEntityDataMasks[entityId] = clientDataMask
+        trackingStatistics.record(start, newlyTracked)
     }
-    private val LIVING_ENTITY_DATA_ID_FILTER = { data: SynchedEntityData.DataValue<*> ->
-        // https://minecraft.wiki/w/Java_Edition_protocol/Entity_metadata#Living_Entity
-        data.id <= 14
+
+    /**
+     * Stops tracking an entity, called when the entity is removed from the world.
+     */
+    @JvmName("untrackEntity")
+    internal fun untrackEntity(entityId: Int) {
+        injectedEntityDataMasks.remove(entityId)
+        lastBroadcastFlags.remove(entityId)
+        lastPacketFlags.remove(entityId)
+        noVariantEntityIds.remove(entityId)
+        pendingPostInitEntityIds.remove(entityId)
+        pendingModelEntityIds.remove(entityId)
     }
 
+    private val INVISIBLE_FLAG_MASK = 1 shl Entity.FLAG_INVISIBLE
+
+    // every possible value of the shared flags byte, prebuilt so that rewriting flags never allocates
+    private val SHARED_FLAGS_DATA_VALUES = Array(256) { flags ->
+        SynchedEntityData.DataValue.create(Entity.DATA_SHARED_FLAGS_ID, flags.toByte())
+    }
+
+    // entity ID -> last shared flags found in any entity data packet of the entity, stored with an extra bit like below
+    // a packet without the flags carries no change to them, so these are the flags the viewers should have
+    private val lastPacketFlags = ConcurrentIntLongMap()
+
     @JvmName("modifyEntityDataIfInjected")
     internal fun modifyEntityDataIfInjected(
         entityId: Int,
         originalData: List<SynchedEntityData.DataValue<*>>
-    ): List<SynchedEntityData.DataValue<*>> {
-        isInjected(entityId) || return originalData
-
-        val isLiving = injectedLivingEntityIds.contains(entityId)
-        val dataFilter = if (isLiving) LIVING_ENTITY_DATA_ID_FILTER else ENTITY_DATA_ID_FILTER
+    ) = modifyEntityDataIfInjected(entityId, originalData, PluginSupportImpl.betterModelLoaded)
 
-        val newEntityData = originalData
-            .filter(dataFilter)
-            .toMutableList()
+    @JvmName("modifyEntityDataIfInjected")
+    internal fun modifyEntityDataIfInjected(
+        entityId: Int,
+        originalData: List<SynchedEntityData.DataValue<*>>,
+        betterModelLoaded: Boolean
+    ): List<SynchedEntityData.DataValue<*>> {
+        val start = entityDataStatistics.startSample()
+        val mask = injectedEntityDataMasks[entityId]
+        if (mask == 0L) { // not injected
+            entityDataStatistics.record(start, false)
+            return originalData
+        }
 
-        // Find where the entity flags are
-        val flagsIndex = newEntityData.indexOfFirst { it.id == 0 }
+        val event = PacketRewriteEvent()
+        event.begin()
+
+        val invisible = entityId in pendingPostInitEntityIds // if the entity is not post-initialized yet
+                || (betterModelLoaded // or if better model is loaded
+                && entityId !in noVariantEntityIds) // and the entity has a variant
+
+        // only allocated once the first value has to be dropped or replaced
+        var newData: MutableList<SynchedEntityData.DataValue<*>>? = null
+        var flagsPresent = false
+        var dropped = 0
+
+        val size = originalData.size
+        for (i in 0 until size) {
+            val data = originalData[i]
+            val replacement = when {
+                !mask.allowsDataId(data.id) -> null
+
+                data.id == Entity.DATA_SHARED_FLAGS_ID.id -> {
+                    flagsPresent = true
+                    val flags = (data.value as Byte).toInt() and 0xFF
+                    val packetFlags = flags.toLong() or FLAGS_PRESENT
+                    if (lastPacketFlags[entityId] != packetFlags) lastPacketFlags[entityId] = packetFlags
+                    val newFlags = if (invisible) flags or INVISIBLE_FLAG_MASK
+                    else flags and INVISIBLE_FLAG_MASK.inv()
+                    if (newFlags == flags) data else SHARED_FLAGS_DATA_VALUES[newFlags]
+                }
 
-        // Get the existing flags or empty if none are set
-        var dataFlags: Byte = if (flagsIndex == -1) 0x0
-        else newEntityData[flagsIndex].value as Byte
+                else -> data
+            }
 
-        fun setFlag(index: Int, value: Boolean) {
-            dataFlags = if (value) (dataFlags or (1 shl index).toByte())
-            else (dataFlags and (1 shl index).inv().toByte())
+            if (replacement !== data && newData == null) {
+                // first change, copy everything kept so far
+                newData = ArrayList(size + 1)
+                for (j in 0 until i) newData += originalData[j]
+            }
+            if (replacement == null) dropped++
+            else if (newData != null) newData += replacement
         }
 
-        setFlag(
-            Entity.FLAG_INVISIBLE,
-            PluginSupportImpl.betterModelLoaded // if better model is loaded
-                    && entityId !in noVariantEntityIds // and the entity has a variant
-        )
+        if (!flagsPresent && invisible) {
+            // the flags are not being sent, but the entity has to be hidden, its other flags are kept
+            // flags that were never sent have the default value of 0
+            val flags = (lastPacketFlags[entityId] and 0xFF).toInt()
+            if (newData == null) newData = ArrayList<SynchedEntityData.DataValue<*>>(size + 1).apply { addAll(originalData) }
+            newData += SHARED_FLAGS_DATA_VALUES[flags or INVISIBLE_FLAG_MASK]
+        }
 
-        val dataFlagsSynched = SynchedEntityData.DataValue.create(
-            Entity.DATA_SHARED_FLAGS_ID,
-            dataFlags
-        )
+        entityDataStatistics.record(start, newData != null, dropped)
+        if (event.shouldCommit()) {
+            event.site = RewriteSite.ENTITY_DATA_PACKET.name
+            event.entityId = entityId
+            event.rewritten = newData != null
+            event.droppedValues = dropped
+            event.commit()
+        }
+        return newData ?: originalData
+    }
 
-        if (flagsIndex == -1) newEntityData += dataFlagsSynched
-        else newEntityData[flagsIndex] = dataFlagsSynched
+    // entity ID -> last shared flags broadcast to all viewers, stored with an extra bit so that it is never 0
+    private val lastBroadcastFlags = ConcurrentIntLongMap()
+    private const val FLAGS_PRESENT = 1L shl Byte.SIZE_BITS
 
-        return newEntityData
-    }
+    // entity data ID + serializer ID + byte value
+    private const val FLAGS_DATA_VALUE_SIZE = 3
 
-    // Mixins end
+    private val suppressedEntityDataPackets = LongAdder()
+    private val suppressedEntityDataBytes = LongAdder()
 
     /**
-     * Migrates an entity to the latest data version.
-     * Returns `false` if no migration happened, `true` if migration was successful.
+     * Decides whether a rewritten entity data packet is worth broadcasting to all viewers of an injected entity.
+     * Returns `false` if the packet is empty or carries only the shared flags the viewers already have.
      */
-    private fun migrate(entity: BukkitEntity, entityType: EntityType<*>): Boolean {
-        when (fetchDataVersion(entity)) {
-            CURRENT_DATA_VERSION -> return false // the entity does not need to be migrated
+    @JvmName("shouldBroadcastEntityData")
+    internal fun shouldBroadcastEntityData(packet: ClientboundSetEntityDataPacket): Boolean {
+        val start = entityDataBroadcastStatistics.startSample()
+        val entityId = packet.id
+        if (entityId !in injectedEntityDataMasks) {
+            entityDataBroadcastStatistics.record(start, false)
+            return true
+        }
 
-            -1 -> {
-                BestiumPlugin.componentLogger.error(
-                    "Cannot migrate entity '${entity.uniqueId}' of type '${entityType}'. No data version is present."
-                )
-                return false
+        val event = PacketRewriteEvent()
+        event.begin()
+
+        val data = packet.packedItems
+        var flags = -1L
+        var flagsOnly = true
+        for (i in 0 until data.size) {
+            val value = data[i]
+            if (value.id == Entity.DATA_SHARED_FLAGS_ID.id) {
+                flags = ((value.value as Byte).toLong() and 0xFF) or FLAGS_PRESENT
+            } else {
+                flagsOnly = false
             }
+        }
 
-            // currently there is no migration logic here, but it will be inserted when necessary
+        if (flagsOnly && (flags == -1L || lastBroadcastFlags[entityId] == flags)) {
+            // nothing the viewers do not already know
+            suppressedEntityDataPackets.increment()
+            // packet ID + entity ID + values + end marker (uncompressed)
+            suppressedEntityDataBytes.add(
+                (1 + VarInt.getByteSize(entityId) + data.size * FLAGS_DATA_VALUE_SIZE + 1).toLong()
+            )
+            entityDataBroadcastStatistics.record(start, true, data.size)
+            commitBroadcastEvent(event, entityId, true, data.size)
+            return false
         }
 
-        PersistentData.BESTIUM_DATA_VERSION[entity] = CURRENT_DATA_VERSION
+        if (flags != -1L) lastBroadcastFlags[entityId] = flags
+        entityDataBroadcastStatistics.record(start, false)
+        commitBroadcastEvent(event, entityId, false, 0)
         return true
     }
 
-    private fun postInitializeBestiumEntity(entity: BukkitEntity) {
-        val injection = getInjection(entity) ?: return
+    private fun commitBroadcastEvent(event: PacketRewriteEvent, entityId: Int, suppressed: Boolean, droppedValues: Int) {
+        if (!event.shouldCommit()) return
+        event.site = RewriteSite.ENTITY_DATA_BROADCAST.name
+        event.entityId = entityId
+        event.rewritten = suppressed
+        event.droppedValues = droppedValues
+        event.commit()
+    }
 
-        val key = injection.key // the key of the Bestium entity
-        val realType = injection.realType
+    // Mixins end
 
-        // true if this entity is spawning for the first time
-        val isFirstSpawn = !PersistentData.BESTIUM_VARIANT.has(entity)
+    // only holds caches of deterministic rules
+    private val variantRuleCaches = ConcurrentHashMap<EntityInjection<*, *>, VariantRuleCache>()
 
-        /** Picks a variant for the entity, returns `null` if no model should be applied */
-        fun pickVariant(): BoundEntityVariant? {
-            val variant = injection.variantRule.apply(
-                injection.variants,
-                EntitySpawnContext(entity, injection)
-            )
+    private fun applyVariantRule(injection: EntityInjection<*, *>, context: EntitySpawnContext): BoundEntityVariant? {
+        val rule = injection.variantRule
+        val inputs = rule.deterministicInputs
+        if (inputs == null || Config.variantCacheSize == 0) return rule.apply(injection.variants, context)
+        return variantRuleCaches
+            .computeIfAbsent(injection) { VariantRuleCache(rule, inputs) }
+            .apply(injection.variants, context)
+    }
 
-            variant?.let {
-                // a variant should be applied, check that it's valid
+    private fun postInitializeBestiumEntity(entity: BukkitEntity) {
+        val injection = getInjection(entity) ?: return
 
-                val variantEntityKey = variant.injection.key
-                if (variantEntityKey != key) {
-                    // the picked variant does not belong to the entity spawning, but to a different entity
-                    throw IllegalStateException(
-                        "Provided entity variant is registered for a different entity: ${variantEntityKey.asString()} instead of ${key.asString()}"
-                    )
-                }
+        val event = PostInitializeEvent()
+        event.begin()
+        val isFirstSpawn = postInitializeBestiumEntity(entity, injection)
+        if (event.shouldCommit()) {
+            event.injectionKey = injection.key.asString()
+            event.variant = PersistentData.BESTIUM_STATE[entity]?.let {
+                if (it.variantIndex == NO_VARIANT_INDEX) NO_VARIANT_ID else VariantIdTable[injection].idOf(it.variantIndex)
             }
+            event.firstSpawn = isFirstSpawn
+            event.commit()
+        }
+    }
 
-            return variant
+    /**
+     * Returns `true` if the entity was spawned for the first time, `false` if it was loaded.
+     */
+    private fun postInitializeBestiumEntity(entity: BukkitEntity, injection: EntityInjection<*, *>): Boolean {
+        // the whole state is read at once, older data versions are migrated first
+        val state = try {
+            EntityMigrator.load(entity, injection)
+        } catch (_: MigrationException) {
+            return false // already reported, the data is left as is, so that the migration is retried next time
         }
 
-        fun applyModel(modelName: String) {
-            PluginSupportImpl.betterModelHook?.applyModel(entity, modelName)
-            PersistentData.BESTIUM_PENDING_MODEL.remove(entity)
+        if (state == null) { // this entity is spawning for the first time
+            pickAndAssignVariant(entity, injection, false)
+            return true
         }
 
-        if (isFirstSpawn) {
-            val variant = pickVariant()
-            PersistentData.BESTIUM_VARIANT[entity] = (variant?.id ?: run {
-                noVariantEntityIds += entity.entityId
-                NO_VARIANT_ID
-            }) // save variant data
-
-            variant?.let {
-                // a variant is present, try to apply it with better model
-                if (PluginSupportImpl.isBetterModelLoaded()) {
-                    applyModel(it.modelName)
-                } else {
-                    // BetterModel currently isn't loaded
-                    // but the user might want to install it later,
-                    // so the modelName is saved for later use
-                    PersistentData.BESTIUM_PENDING_MODEL[entity] = variant.modelName
-                }
+        // the entity was already spawned and is just being loaded
+        if (state.variantIndex == NO_VARIANT_INDEX) {
+            noVariantEntityIds += entity.entityId
+        } else if (state.modelPending) {
+            // a model is pending, apply it if better model is loaded
+            if (PluginSupportImpl.isBetterModelLoaded()) applyPendingModel(entity, injection, state)
+            // otherwise remembered, so that the model can be applied if better model gets enabled later
+            else rememberPendingModel(entity)
+        }
+
+        return false
+    }
+
+    /**
+     * Picks a variant for the entity and assigns it, either right away or once an asynchronous rule completes.
+     *
+     * @param refreshViewers whether the entity is already visible to players and has to be updated for them,
+     * ignored for asynchronous rules, which always update them
+     */
+    private fun pickAndAssignVariant(entity: BukkitEntity, injection: EntityInjection<*, *>, refreshViewers: Boolean) {
+        val asyncRule = injection.variantRule.asyncRule
+        if (asyncRule != null) pickVariantAsync(entity, injection, asyncRule)
+        else assignVariant(entity, injection, pickVariant(entity, injection), refreshViewers)
+    }
+
+    /** Picks a variant for the entity, returns `null` if no model should be applied */
+    private fun pickVariant(entity: BukkitEntity, injection: EntityInjection<*, *>): BoundEntityVariant? {
+        val event = VariantRuleEvent()
+        event.begin()
+        val variant = applyVariantRule(injection, EntitySpawnContext(entity, injection, Config.seededVariants))
+        if (event.shouldCommit()) {
+            event.injectionKey = injection.key.asString()
+            event.variant = variant?.id ?: NO_VARIANT_ID
+            event.rule = injection.variantRule.javaClass
+            event.commit()
+        }
+        return variant
+    }
+
+    private val asyncVariantExecutor = Executors.newVirtualThreadPerTaskExecutor()
+
+    /**
+     * Stops evaluating asynchronous variant rules, called when the plugin is disabled.
+     */
+    fun shutdown() {
+        asyncVariantExecutor.shutdownNow()
+    }
+
+    /**
+     * Evaluates an asynchronous variant rule on a virtual thread against a snapshot of the spawn context,
+     * the variant is then assigned on the thread owning the entity.
+     *
+     * The entity has already been sent to its viewers by the time the rule completes, so they are always refreshed.
+     */
+    private fun pickVariantAsync(entity: BukkitEntity, injection: EntityInjection<*, *>, rule: AsyncVariantRule) {
+        val context = EntitySpawnContext(entity, injection, Config.seededVariants).snapshot()
+        CompletableFuture
+            .supplyAsync({ rule.apply(injection.variants, context) }, asyncVariantExecutor)
+            .thenCompose { it }
+            .whenComplete { variant, throwable ->
+                // the rule might complete on its own thread after the plugin is disabled
+                if (!BestiumPlugin.isEnabled) return@whenComplete
+                // not run if the entity is removed in the meantime
+                entity.scheduler.run(BestiumPlugin, {
+                    if (throwable != null) {
+                        BestiumPlugin.componentLogger.error(
+                            "Asynchronous variant rule of entity '${entity.uniqueId}' of type '${injection.key.asString()}' failed",
+                            throwable
+                        )
+                    } else if (!PersistentData.BESTIUM_STATE.has(entity)) {
+                        assignVariant(entity, injection, variant, true)
+                    }
+                }, null)
             }
+    }
+
+    /**
+     * Persists the picked variant of an entity spawning for the first time and applies its model.
+     */
+    private fun assignVariant(
+        entity: BukkitEntity,
+        injection: EntityInjection<*, *>,
+        variant: BoundEntityVariant?,
+        refreshViewers: Boolean
+    ) {
+        val key = injection.key // the key of the Bestium entity
 
-            // store current data version
-            PersistentData.BESTIUM_DATA_VERSION[entity] = CURRENT_DATA_VERSION
-        } else { // the entity was already spawned and is just being loaded
-            migrate(entity, realType)
+        variant?.let {
+            // a variant should be applied, check that it's valid
 
-            if (PersistentData.BESTIUM_VARIANT[entity] == NO_VARIANT_ID) {
-                noVariantEntityIds += entity.entityId
+            val variantEntityKey = variant.injection.key
+            if (variantEntityKey != key) {
+                // the picked variant does not belong to the entity spawning, but to a different entity
+                throw IllegalStateException(
+                    "Provided entity variant is registered for a different entity: ${variantEntityKey.asString()} instead of ${key.asString()}"
+                )
             }
+        }
+
+        // resolved before anything is applied, so that nothing is left behind if the index cannot be persisted
+        val variantIndex = variant?.let { VariantIdTable[injection].indexOf(it.id) } ?: NO_VARIANT_INDEX
 
+        var modelPending = false
+        variant?.let {
+            // a variant is present, try to apply it with better model
             if (PluginSupportImpl.isBetterModelLoaded()) {
-                // better model is loaded check for a pending model
-                PersistentData.BESTIUM_PENDING_MODEL[entity]?.let {
-                    applyModel(it)
-                }
+                applyModel(entity, injection, it.id, it.modelName)
+            } else {
+                // BetterModel currently isn't loaded
+                // but the user might want to install it later,
+                // so the model is marked as pending, its name follows from the variant
+                modelPending = true
+                rememberPendingModel(entity)
             }
         }
+
+        if (variant == null) noVariantEntityIds += entity.entityId
+        // save all state in a single write
+        PersistentData.BESTIUM_STATE[entity] =
+            EntityState(CURRENT_DATA_VERSION, variantIndex, modelPending, EntityMigrator.dataVersion(injection))
+
+        if (refreshViewers) refreshSharedFlags(entity)
+    }
+
+    /**
+     * Makes the shared flags of an entity be sent again, so that viewers see whether it should be hidden.
+     */
+    private fun refreshSharedFlags(entity: BukkitEntity) {
+        val handle = (entity as CraftEntity).handle
+        lastBroadcastFlags.remove(handle.id)
+        val data = handle.entityData
+        data.set(Entity.DATA_SHARED_FLAGS_ID, data.get(Entity.DATA_SHARED_FLAGS_ID), true)
+    }
+
+    /**
+     * Drops the current variant of an entity and picks a new one.
+     */
+    private fun rerollVariant(entity: BukkitEntity, injection: EntityInjection<*, *>) {
+        PluginSupportImpl.betterModelHook?.removeModels(entity)
+        PersistentData.BESTIUM_STATE.remove(entity)
+        noVariantEntityIds.remove(entity.entityId)
+        pendingModelEntityIds.remove(entity.entityId)
+        pickAndAssignVariant(entity, injection, true)
+    }
+
+    override fun rerollVariants(injection: EntityInjection<*, *>): VariantReroll {
+        check(Bukkit.isPrimaryThread()) { "Variants can only be rerolled on the main thread" }
+        val entities = Bukkit.getWorlds().flatMap { world ->
+            world.entities.filter { getInjection(it) === injection }
+        }
+        return VariantRerollImpl(injection, entities) { rerollVariant(it, injection) }
+    }
+
+    // IDs of loaded entities whose model is pending, only kept while better model is installed but not enabled
+    private val pendingModelEntityIds = ConcurrentIntSet()
+
+    private fun rememberPendingModel(entity: BukkitEntity) {
+        // better model is enabled before Bestium, so it can only be enabled later if it failed to or was disabled
+        if (PluginSupportImpl.isBetterModelEnablePending()) pendingModelEntityIds += entity.entityId
+    }
+
+    /**
+     * Applies the pending models of all the loaded entities in batches under a per-tick time budget.
+     */
+    private fun backfillPendingModels() {
+        val entities = Bukkit.getWorlds().flatMap { world ->
+            world.entities.filter { it.entityId in pendingModelEntityIds }
+        }
+        if (entities.isEmpty()) return
+        if (logNormal) BestiumPlugin.componentLogger.info("Applying pending models of ${entities.size} loaded entities")
+
+        TimeSlicedQueue<BukkitEntity>(BestiumPlugin, Config::modelBackfillTickBudgetNanos) { entity ->
+            // the entity might have been unloaded or rerolled in the meantime
+            if (!entity.isValid || entity.entityId !in pendingModelEntityIds) return@TimeSlicedQueue
+            val injection = getInjection(entity) ?: return@TimeSlicedQueue
+            val state = PersistentData.BESTIUM_STATE[entity] ?: return@TimeSlicedQueue
+            applyPendingModel(entity, injection, state)
+            // the entity was visible without a model, hide it behind the model now
+            refreshSharedFlags(entity)
+        }.addAll(entities)
     }
 
-    // optimized contains(EntityType)
-    private val injectedTypes by lazy { EntityInjectorImpl.types.values.toHashSet() }
+    private fun applyPendingModel(entity: BukkitEntity, injection: EntityInjection<*, *>, state: EntityState) {
+        pendingModelEntityIds.remove(entity.entityId)
+        val variant = VariantIdTable[injection].idOf(state.variantIndex)?.let { injection.variants[it] }
+        if (variant == null) {
+            BestiumPlugin.componentLogger.warn(
+                "Cannot apply the pending model of entity '${entity.uniqueId}' of type '${injection.key.asString()}', its variant no longer exists"
+            )
+        } else {
+            applyModel(entity, injection, variant.id, variant.modelName)
+        }
+        PersistentData.BESTIUM_STATE[entity] = state.copy(modelPending = false)
+    }
 
-    private fun isInjected(entityId: Int) = injectedEntityIds.contains(entityId)
+    private fun applyModel(entity: BukkitEntity, injection: EntityInjection<*, *>, variantId: String?, modelName: String) {
+        val event = ModelApplyEvent()
+        event.begin()
+        PluginSupportImpl.betterModelHook?.applyModel(entity, modelName)
+        if (event.shouldCommit()) {
+            event.injectionKey = injection.key.asString()
+            event.variant = variantId
+            event.modelName = modelName
+            event.commit()
+        }
+    }
 
-    override fun isInjected(type: EntityType<*>) = injectedTypes.contains(type)
+    override fun isInjected(type: EntityType<*>) = type.isInjected
 
     override fun getInjection(entity: Entity) = EntityInjectorImpl.injections[entity.javaClass]
 
+    private class PendingPostInit(val entity: BukkitEntity, val enqueuedNanos: Long)
+
+    // world UID -> post-initialization queue, only accessed from the main thread
+    private val postInitQueues = hashMapOf<UUID, TimeSlicedQueue<PendingPostInit>>()
+
+    /**
+     * Post-initializes an entity right away while the budget of the current tick lasts,
+     * otherwise queues it, hidden from players until it is processed.
+     */
+    private fun schedulePostInitialization(entity: BukkitEntity) {
+        val queue = postInitQueues.getOrPut(entity.world.uid) {
+            TimeSlicedQueue(BestiumPlugin, Config::postInitTickBudgetNanos, ::postInitializeQueued)
+        }
+        if (queue.runNow { postInitializeBestiumEntity(entity) }) return
+        pendingPostInitEntityIds += entity.entityId
+        PostInitializationStatisticsImpl.enqueued()
+        queue.add(PendingPostInit(entity, System.nanoTime()))
+    }
+
+    private fun postInitializeQueued(pending: PendingPostInit) {
+        val entity = pending.entity
+        // the entity was removed from the world or post-initialized directly in the meantime
+        if (!pendingPostInitEntityIds.remove(entity.entityId) || !entity.isValid) {
+            PostInitializationStatisticsImpl.dropped()
+            return
+        }
+        postInitializeBestiumEntity(entity)
+        PostInitializationStatisticsImpl.processed(System.nanoTime() - pending.enqueuedNanos)
+        // the entity was hidden while pending, show it unless it is still meant to be hidden
+        if (!PluginSupportImpl.isBetterModelLoaded() || entity.entityId in noVariantEntityIds) refreshSharedFlags(entity)
+    }
+
+    /**
+     * Post-initializes a queued entity right away, so that it is ready when it is returned to the caller.
+     */
+    private fun postInitializeNow(entity: BukkitEntity) {
+        if (pendingPostInitEntityIds.remove(entity.entityId)) postInitializeBestiumEntity(entity)
+    }
+
     @EventHandler(priority = EventPriority.LOWEST)
     private fun EntityAddToWorldEvent.handle() {
-        if (!isInjected(entity)) return
-        postInitializeBestiumEntity(entity)
+        val handle = (entity as CraftEntity).handle
+        if (!isInjected(handle)) return
+        trackEntity(handle)
+        if (Config.postInitTickBudgetNanos == 0L) postInitializeBestiumEntity(entity)
+        else schedulePostInitialization(entity)
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    private fun EntityRemoveFromWorldEvent.handle() = untrackEntity(entity.entityId)
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private fun PluginEnableEvent.handle() {
+        if (plugin.name != BETTER_MODEL_PLUGIN) return
+        // better model is enabled before Bestium, so this is a late or reloaded enable
+        PluginSupportImpl.refreshBetterModel()
+        val hook = PluginSupportImpl.betterModelHook ?: return
+        // the model assets are added once better model reloads them
+        hook.register()
+        backfillPendingModels()
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
-    private fun EntityRemoveFromWorldEvent.handle() {
-        val id = entity.entityId
-        injectedEntityIds.remove(id)
-        injectedLivingEntityIds.remove(id)
-        noVariantEntityIds.remove(id)
+    private fun WorldUnloadEvent.handle() {
+        val queue = postInitQueues.remove(world.uid) ?: return
+        PostInitializationStatisticsImpl.dropped(queue.size)
+        queue.clear()
     }
 
     override fun <T : Entity> spawn(
@@ -248,17 +630,23 @@ object EntityManagerImpl : EntityManager, Listener {
             false,
             false,
             creatureSpawnReason,
-        )
+        )?.also { postInitializeNow(it.bukkitEntity) }
     }
 
-    private val backingTypes by lazy {
-        EntityInjectorImpl.injections.values.associateBy(
-            EntityInjection<*, *>::getRealType,
-            EntityInjection<*, *>::getBackingType
-        )
-    }
+    override fun getBackingType(type: EntityType<*>) = type.backingType
+
+    override fun getSuppressedEntityDataPackets() = suppressedEntityDataPackets.sum()
+
+    override fun getSuppressedEntityDataBytes() = suppressedEntityDataBytes.sum()
+
+    override fun getRewriteStatistics(site: RewriteSite) = RewriteStatisticsImpl[site]
+
+    override fun getPostInitializationStatistics() = PostInitializationStatisticsImpl
+
+    override fun registerMigration(injection: EntityInjection<*, *>, fromVersion: Int, migration: EntityDataMigration) =
+        EntityMigrator.register(injection, fromVersion, migration)
 
-    override fun getBackingType(type: EntityType<*>) = backingTypes[type]
+    override fun getDataVersion(injection: EntityInjection<*, *>) = EntityMigrator.dataVersion(injection)
 
-    fun remapType(type: EntityType<*>): EntityType<*> = getBackingType(type) ?: type
+    override fun getEntityIndex(world: World) = EntityIndexes[world]
 }
\ No newline at end of file
@@ -4,19 +4,27 @@ import cz.jeme.bestium.api.PluginSupport
 import cz.jeme.bestium.hooks.bettermodel.BetterModelHook
 import cz.jeme.bestium.util.CachedFirst
 import org.bukkit.Bukkit
+import org.bukkit.plugin.Plugin
+
+const val BETTER_MODEL_PLUGIN = "BetterModel"
 
 object PluginSupportImpl : PluginSupport {
-    val betterModelHook by CachedFirst.NotNull { if (isBetterModelLoaded()) BetterModelHook() else null }
+    private val betterModelHookCache = CachedFirst.NotNull { if (isBetterModelLoaded()) BetterModelHook() else null }
+
+    val betterModelHook by betterModelHookCache
 
-    private fun loadedPlugin(name: String): Boolean {
+    private fun plugin(name: String): Plugin? {
         try {
-            Bukkit.getPluginManager().getPlugin(name)
-            return true
+            return Bukkit.getPluginManager().getPlugin(name)
         } catch (e: NullPointerException) {
             throw IllegalStateException("Cannot check for plugin support, server is still in bootstrap phase", e)
         }
     }
 
+    private fun loadedPlugin(name: String) = plugin(name) != null
+
+    private fun enabledPlugin(name: String) = plugin(name)?.isEnabled == true
+
     private fun loadedClass(className: String): Boolean {
         return try {
             Class.forName(className)
@@ -26,14 +34,30 @@ object PluginSupportImpl : PluginSupport {
         }
     }
 
-    val betterModelLoaded by CachedFirst.True {
-        loadedPlugin("BetterModel") &&
+    // the negative result is cached as well, as this is checked for every entity data packet
+    private val betterModelLoadedCache = CachedFirst.Value {
+        enabledPlugin(BETTER_MODEL_PLUGIN) &&
                 loadedClass("kr.toxicity.model.api.BetterModel") &&
                 loadedClass("kr.toxicity.model.api.bukkit.BetterModelBukkit")
     }
 
+    val betterModelLoaded by betterModelLoadedCache
+
+    /**
+     * Checks for better model again and drops the hook bound to the previous check, called when it gets enabled.
+     */
+    fun refreshBetterModel() {
+        betterModelLoadedCache.reset()
+        betterModelHookCache.reset()
+    }
+
     override fun isBetterModelLoaded() = betterModelLoaded
 
+    /**
+     * Checks whether better model is installed, but not enabled, so that it might still get enabled later.
+     */
+    fun isBetterModelEnablePending() = plugin(BETTER_MODEL_PLUGIN)?.isEnabled == false
+
     val novaLoaded by CachedFirst.True { loadedPlugin("Nova") }
 
     override fun isNovaLoaded() = novaLoaded
@@ -0,0 +1,48 @@
+package cz.jeme.bestium
+
+import cz.jeme.bestium.api.VariantReroll
+import cz.jeme.bestium.api.inject.EntityInjection
+import cz.jeme.bestium.config.Config
+import cz.jeme.bestium.util.TimeSlicedQueue
+import java.util.concurrent.CompletableFuture
+import org.bukkit.entity.Entity as BukkitEntity
+
+class VariantRerollImpl(
+    private val injection: EntityInjection<*, *>,
+    entities: List<BukkitEntity>,
+    reroll: (BukkitEntity) -> Unit
+) : VariantReroll {
+    private val total = entities.size
+
+    @Volatile
+    private var processed = 0
+
+    private val completion = CompletableFuture<VariantReroll>()
+
+    private val queue = TimeSlicedQueue<BukkitEntity>(BestiumPlugin, Config::rerollTickBudgetNanos) { entity ->
+        // the entity might have been unloaded in the meantime
+        if (entity.isValid) reroll(entity)
+        processed++
+    }
+
+    init {
+        queue.afterBatch = { if (queue.isEmpty()) completion.complete(this) }
+        queue.addAll(entities)
+        if (entities.isEmpty()) completion.complete(this)
+    }
+
+    override fun getInjection() = injection
+
+    override fun getTotal() = total
+
+    override fun getProcessed() = processed
+
+    override fun isDone() = completion.isDone
+
+    override fun cancel() {
+        queue.clear()
+        completion.complete(this)
+    }
+
+    override fun getCompletion(): CompletableFuture<VariantReroll> = completion
+}
@@ -2,22 +2,41 @@ package cz.jeme.bestium.command
 
 import com.mojang.brigadier.Command
 import com.mojang.brigadier.context.CommandContext
+import cz.jeme.bestium.EntityManagerImpl
 import cz.jeme.bestium.config.Config
+import cz.jeme.bestium.inject.EntityInjectorImpl
 import cz.jeme.bestium.util.bestiumComponent
 import io.papermc.paper.command.brigadier.CommandSourceStack
 import io.papermc.paper.command.brigadier.Commands
+import io.papermc.paper.command.brigadier.Commands.argument
 import io.papermc.paper.command.brigadier.Commands.literal
+import io.papermc.paper.command.brigadier.argument.ArgumentTypes
+import net.kyori.adventure.key.Key
 import net.kyori.adventure.text.Component
 import net.kyori.adventure.text.format.NamedTextColor
+import net.minecraft.commands.SharedSuggestionProvider
+import org.bukkit.Bukkit
 import org.bukkit.command.CommandSender
 import org.bukkit.plugin.Plugin
 
-class BestiumCommand(plugin: Plugin, commands: Commands) {
+class BestiumCommand(private val plugin: Plugin, commands: Commands) {
     private val command = literal("bestium")
         .requires { it.sender.hasPermission("bestium.command.bestium") }
         .then(
             literal("reload").executes(::reload)
         )
+        .then(
+            literal("reroll").then(
+                argument("entity", ArgumentTypes.key())
+                    .suggests { _, builder ->
+                        SharedSuggestionProvider.suggest(
+                            EntityInjectorImpl.keyedInjections.keys.map(Key::asString),
+                            builder
+                        )
+                    }
+                    .executes(::reroll)
+            )
+        )
         .build()
 
     private fun reload(ctx: CommandContext<CommandSourceStack>): Int {
@@ -34,6 +53,50 @@ class BestiumCommand(plugin: Plugin, commands: Commands) {
         return Command.SINGLE_SUCCESS
     }
 
+    private fun reroll(ctx: CommandContext<CommandSourceStack>): Int {
+        val key = ctx.getArgument("entity", Key::class.java)
+        val injection = EntityInjectorImpl.keyedInjections[key]
+            ?: throw ComponentCommandExceptionType(
+                Component.text("Unknown Bestium entity: '${key.asString()}'")
+            ).create()
+        val sender: CommandSender = ctx.source.executor ?: ctx.source.sender
+
+        val reroll = EntityManagerImpl.rerollVariants(injection)
+        sender.sendMessage(
+            bestiumComponent.append(
+                Component.text(
+                    "Rerolling variants of ${reroll.total} loaded entit${if (reroll.total == 1) "y" else "ies"} of type '${key.asString()}'",
+                    NamedTextColor.GRAY
+                )
+            )
+        )
+
+        // report progress every second until done
+        Bukkit.getScheduler().runTaskTimer(plugin, { task ->
+            if (reroll.isDone) {
+                task.cancel()
+                return@runTaskTimer
+            }
+            sender.sendMessage(
+                bestiumComponent.append(
+                    Component.text("Rerolled ${reroll.processed}/${reroll.total}", NamedTextColor.GRAY)
+                )
+            )
+        }, 20L, 20L)
+
+        reroll.completion.thenAccept {
+            sender.sendMessage(
+                bestiumComponent.append(
+                    Component.text(
+                        "Rerolled variants of ${it.processed}/${it.total} entities",
+                        NamedTextColor.GREEN
+                    )
+                )
+            )
+        }
+        return Command.SINGLE_SUCCESS
+    }
+
     init {
         commands.register(
             plugin.pluginMeta,
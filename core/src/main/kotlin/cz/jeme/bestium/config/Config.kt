@@ -42,4 +42,20 @@ object Config {
     enum class LogLevel { QUIET, NORMAL, VERBOSE }
 
     val logLevel: LogLevel by entry { config.getEnum<LogLevel>("log-level", LogLevel.NORMAL, ignoreCase = true)!! }
+
+    val variantCacheSize: Int by entry { config.getInt("variant-cache-size", 256).coerceAtLeast(0) }
+
+    val seededVariants: Boolean by entry { config.getBoolean("seeded-variants", false) }
+
+    val rerollTickBudgetNanos: Long by entry {
+        (config.getDouble("reroll-tick-budget", 5.0) * 1_000_000).toLong().coerceAtLeast(0)
+    }
+
+    val postInitTickBudgetNanos: Long by entry {
+        (config.getDouble("post-init-tick-budget", 2.0) * 1_000_000).toLong().coerceAtLeast(0)
+    }
+
+    val modelBackfillTickBudgetNanos: Long by entry {
+        (config.getDouble("model-backfill-tick-budget", 2.0) * 1_000_000).toLong().coerceAtLeast(0)
+    }
 }
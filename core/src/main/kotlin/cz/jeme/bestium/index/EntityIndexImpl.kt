@@ -0,0 +1,253 @@
+package cz.jeme.bestium.index
+
+import cz.jeme.bestium.api.EntityIndex
+import cz.jeme.bestium.api.inject.EntityInjection
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap
+import it.unimi.dsi.fastutil.ints.IntArrayList
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
+import net.kyori.adventure.key.Key
+import net.kyori.adventure.text.logger.slf4j.ComponentLogger
+import org.bukkit.World
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.util.Collections
+import java.util.UUID
+import kotlin.io.path.createDirectories
+import kotlin.io.path.exists
+import kotlin.io.path.readLines
+
+private const val MAGIC = 0x42534958 // "BSIX"
+private const val FORMAT_VERSION = 1
+private const val HEADER_SIZE = 32
+private const val RECORD_SIZE = 32
+private const val INITIAL_CAPACITY = 1024
+
+// header layout
+private const val HEADER_MAGIC = 0
+private const val HEADER_VERSION = 4
+private const val HEADER_CAPACITY = 8
+
+// record layout
+private const val RECORD_UUID_MOST = 0
+private const val RECORD_UUID_LEAST = 8
+private const val RECORD_CHUNK = 16
+private const val RECORD_KEY = 24
+private const val RECORD_USED = 28
+
+private val logger = ComponentLogger.logger("BestiumEntityIndex")
+
+/**
+ * An [EntityIndex] kept in memory and mirrored into a memory-mapped file of fixed-size records.
+ *
+ * Every indexed entity owns one record slot holding its UUID, chunk key and injection key index,
+ * so that every change writes only a few bytes. The injection keys are stored in a separate append-only file,
+ * the line number of a key being its index. The files are only created once the first entity is indexed.
+ */
+class EntityIndexImpl(private val world: World, private val directory: Path) : EntityIndex {
+    private val file = directory.resolve("${world.uid}.idx")
+    private val keysFile = directory.resolve("${world.uid}.keys")
+
+    private class Entry(val uuid: UUID, val keyIndex: Int, val slot: Int, var chunk: Long)
+
+    private val keys = mutableListOf<Key>()
+    private val keyIndices = hashMapOf<Key, Int>()
+
+    private val entries = hashMapOf<UUID, Entry>()
+    private val chunks = Long2ObjectOpenHashMap<MutableSet<Entry>>()
+    private val counts = Int2IntOpenHashMap() // key index -> entity count
+    private val freeSlots = IntArrayList()
+
+    private lateinit var channel: FileChannel
+    private lateinit var buffer: MappedByteBuffer
+    private var capacity = 0
+
+    private val opened get() = ::channel.isInitialized
+
+    init {
+        if (keysFile.exists()) keysFile.readLines().filter(String::isNotEmpty).forEach {
+            keyIndices[Key.key(it)] = keys.size
+            keys += Key.key(it)
+        }
+        if (file.exists()) open()
+    }
+
+    private fun open() {
+        directory.createDirectories()
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)
+        val existing = if (channel.size() < HEADER_SIZE) null else channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size())
+        if (existing != null
+            && existing.getInt(HEADER_MAGIC) == MAGIC
+            && existing.getInt(HEADER_VERSION) == FORMAT_VERSION
+            && HEADER_SIZE + existing.getInt(HEADER_CAPACITY).toLong() * RECORD_SIZE <= channel.size()
+        ) {
+            buffer = existing
+            capacity = existing.getInt(HEADER_CAPACITY)
+            load()
+        } else {
+            if (channel.size() != 0L) {
+                logger.warn("Entity index '$file' is invalid, it will be rebuilt as chunks load")
+                channel.truncate(0)
+            }
+            capacity = INITIAL_CAPACITY
+            buffer = map(capacity)
+            // freshly mapped regions of the file are zeroed, so all the slots are free
+            buffer.putInt(HEADER_MAGIC, MAGIC)
+            buffer.putInt(HEADER_VERSION, FORMAT_VERSION)
+            buffer.putInt(HEADER_CAPACITY, capacity)
+            for (slot in capacity - 1 downTo 0) freeSlots.add(slot)
+        }
+    }
+
+    private fun map(capacity: Int) =
+        channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + capacity.toLong() * RECORD_SIZE)
+
+    private fun offset(slot: Int) = HEADER_SIZE + slot * RECORD_SIZE
+
+    private fun load() {
+        for (slot in capacity - 1 downTo 0) {
+            val offset = offset(slot)
+            val keyIndex = buffer.getInt(offset + RECORD_KEY)
+            if (buffer.getInt(offset + RECORD_USED) == 0 || keyIndex !in keys.indices) {
+                freeSlots.add(slot)
+                continue
+            }
+            val uuid = UUID(buffer.getLong(offset + RECORD_UUID_MOST), buffer.getLong(offset + RECORD_UUID_LEAST))
+            link(Entry(uuid, keyIndex, slot, buffer.getLong(offset + RECORD_CHUNK)))
+        }
+    }
+
+    private fun link(entry: Entry) {
+        entries[entry.uuid] = entry
+        chunks.computeIfAbsent(entry.chunk) { LinkedHashSet() }.add(entry)
+        counts.addTo(entry.keyIndex, 1)
+    }
+
+    private fun unlinkChunk(entry: Entry) {
+        val chunk = chunks.get(entry.chunk) ?: return
+        chunk.remove(entry)
+        if (chunk.isEmpty()) chunks.remove(entry.chunk)
+    }
+
+    /**
+     * Returns the index of the given injection key, appending the key to the keys file if it is not known yet.
+     * Returns `null` if the key could not be saved.
+     */
+    private fun keyIndex(key: Key): Int? = keyIndices[key] ?: try {
+        directory.createDirectories()
+        Files.write(
+            keysFile,
+            listOf(key.asString()),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND
+        )
+        keys += key
+        (keys.size - 1).also { keyIndices[key] = it }
+    } catch (e: Exception) {
+        logger.error("Could not save entity index keys '$keysFile'", e)
+        null
+    }
+
+    private fun grow() {
+        val newCapacity = capacity * 2
+        buffer.force()
+        buffer = map(newCapacity)
+        buffer.putInt(HEADER_CAPACITY, newCapacity)
+        for (slot in newCapacity - 1 downTo capacity) freeSlots.add(slot)
+        capacity = newCapacity
+    }
+
+    /**
+     * Adds an entity to the index, or moves it to the given chunk if it is already indexed.
+     */
+    fun put(uuid: UUID, key: Key, chunk: Long) {
+        entries[uuid]?.let { entry ->
+            if (entry.chunk == chunk) return
+            unlinkChunk(entry)
+            entry.chunk = chunk
+            chunks.computeIfAbsent(chunk) { LinkedHashSet() }.add(entry)
+            buffer.putLong(offset(entry.slot) + RECORD_CHUNK, chunk)
+            return
+        }
+
+        val keyIndex = keyIndex(key) ?: return // already logged, indexed again when its chunk is saved
+        if (!opened) open()
+        if (freeSlots.isEmpty) grow()
+        val entry = Entry(uuid, keyIndex, freeSlots.removeInt(freeSlots.size - 1), chunk)
+        val offset = offset(entry.slot)
+        buffer.putLong(offset + RECORD_UUID_MOST, uuid.mostSignificantBits)
+        buffer.putLong(offset + RECORD_UUID_LEAST, uuid.leastSignificantBits)
+        buffer.putLong(offset + RECORD_CHUNK, chunk)
+        buffer.putInt(offset + RECORD_KEY, entry.keyIndex)
+        // marked as used last, so that a half written record is never read back
+        buffer.putInt(offset + RECORD_USED, 1)
+        link(entry)
+    }
+
+    fun remove(uuid: UUID) {
+        val entry = entries.remove(uuid) ?: return
+        unlinkChunk(entry)
+        counts.addTo(entry.keyIndex, -1)
+        buffer.putInt(offset(entry.slot) + RECORD_USED, 0)
+        freeSlots.add(entry.slot)
+    }
+
+    /**
+     * Removes the entities indexed in a chunk that did not load with it and are not loaded elsewhere,
+     * for example because the chunk was edited while the server was not running.
+     */
+    fun reconcile(chunk: Long, loaded: Set<UUID>) {
+        val indexed = chunks.get(chunk) ?: return
+        indexed
+            .filter { it.uuid !in loaded && world.getEntity(it.uuid) == null }
+            .forEach { remove(it.uuid) }
+    }
+
+    /**
+     * Writes all the changes to the disk.
+     */
+    fun flush() {
+        if (opened) buffer.force()
+    }
+
+    fun close() {
+        if (!opened) return
+        flush()
+        channel.close()
+    }
+
+    override fun getWorld() = world
+
+    override fun count(injection: EntityInjection<*, *>): Int {
+        val keyIndex = keyIndices[injection.key] ?: return 0
+        return counts.get(keyIndex)
+    }
+
+    override fun count(injection: EntityInjection<*, *>, chunkX: Int, chunkZ: Int): Int {
+        val keyIndex = keyIndices[injection.key] ?: return 0
+        return chunks.get(chunkKey(chunkX, chunkZ))?.count { it.keyIndex == keyIndex } ?: 0
+    }
+
+    override fun getEntities(injection: EntityInjection<*, *>, chunkX: Int, chunkZ: Int): Set<UUID> {
+        val keyIndex = keyIndices[injection.key] ?: return emptySet()
+        val chunk = chunks.get(chunkKey(chunkX, chunkZ)) ?: return emptySet()
+        return Collections.unmodifiableSet(chunk.asSequence().filter { it.keyIndex == keyIndex }.map { it.uuid }.toSet())
+    }
+
+    override fun getChunkCounts(injection: EntityInjection<*, *>): Map<Long, Int> {
+        val keyIndex = keyIndices[injection.key] ?: return emptyMap()
+        val result = hashMapOf<Long, Int>()
+        for (entry in chunks.long2ObjectEntrySet()) {
+            val count = entry.value.count { it.keyIndex == keyIndex }
+            if (count != 0) result[entry.longKey] = count
+        }
+        return Collections.unmodifiableMap(result)
+    }
+}
+
+/**
+ * Packs chunk coordinates the same way as [org.bukkit.Chunk.getChunkKey].
+ */
+fun chunkKey(chunkX: Int, chunkZ: Int) = (chunkX.toLong() and 0xFFFFFFFFL) or ((chunkZ.toLong() and 0xFFFFFFFFL) shl 32)
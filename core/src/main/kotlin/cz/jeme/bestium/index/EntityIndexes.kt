@@ -0,0 +1,88 @@
+package cz.jeme.bestium.index
+
+import com.destroystokyo.paper.event.entity.EntityAddToWorldEvent
+import com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent
+import cz.jeme.bestium.EntityManagerImpl
+import cz.jeme.bestium.dataFolder
+import org.bukkit.World
+import org.bukkit.craftbukkit.entity.CraftEntity
+import org.bukkit.event.EventHandler
+import org.bukkit.event.EventPriority
+import org.bukkit.event.Listener
+import org.bukkit.event.world.EntitiesLoadEvent
+import org.bukkit.event.world.EntitiesUnloadEvent
+import org.bukkit.event.world.WorldSaveEvent
+import org.bukkit.event.world.WorldUnloadEvent
+import java.util.UUID
+import org.bukkit.entity.Entity as BukkitEntity
+
+/**
+ * Keeps the [EntityIndexImpl] of every world up to date. Must only be accessed from the main thread.
+ */
+object EntityIndexes : Listener {
+    private val directory by lazy { dataFolder.resolve("entity-index") }
+
+    // world UID -> index
+    private val indexes = hashMapOf<UUID, EntityIndexImpl>()
+
+    operator fun get(world: World) = indexes.getOrPut(world.uid) { EntityIndexImpl(world, directory) }
+
+    private val BukkitEntity.injection get() = EntityManagerImpl.getInjection((this as CraftEntity).handle)
+
+    private val BukkitEntity.chunkKey: Long
+        get() {
+            val handle = (this as CraftEntity).handle
+            return chunkKey(handle.blockX shr 4, handle.blockZ shr 4)
+        }
+
+    /**
+     * Writes all the indexes to the disk and closes them.
+     */
+    fun closeAll() {
+        indexes.values.forEach(EntityIndexImpl::close)
+        indexes.clear()
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private fun EntityAddToWorldEvent.handle() {
+        val injection = entity.injection ?: return
+        this@EntityIndexes[world].put(entity.uniqueId, injection.key, entity.chunkKey)
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private fun EntityRemoveFromWorldEvent.handle() {
+        if (entity.injection == null) return
+        // entities unloaded with their chunk stay indexed
+        if ((entity as CraftEntity).handle.removalReason?.shouldSave() == true) return
+        this@EntityIndexes[world].remove(entity.uniqueId)
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private fun EntitiesUnloadEvent.handle() {
+        val index = this@EntityIndexes[world]
+        val chunkKey = chunk.chunkKey
+        // the entities are saved with this chunk, no matter which chunk they were added in
+        for (entity in entities) {
+            val injection = entity.injection ?: continue
+            index.put(entity.uniqueId, injection.key, chunkKey)
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private fun EntitiesLoadEvent.handle() {
+        this@EntityIndexes[world].reconcile(
+            chunk.chunkKey,
+            entities.asSequence().filter { it.injection != null }.map { it.uniqueId }.toSet()
+        )
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private fun WorldSaveEvent.handle() {
+        indexes[world.uid]?.flush()
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    private fun WorldUnloadEvent.handle() {
+        indexes.remove(world.uid)?.close()
+    }
+}
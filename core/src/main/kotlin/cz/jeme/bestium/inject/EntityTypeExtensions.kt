@@ -0,0 +1,9 @@
+package cz.jeme.bestium.inject
+
+import net.minecraft.world.entity.EntityType
+
+val EntityType<*>.isInjected: Boolean get() = BestiumEntityType.of(this).`bestium$isInjected`()
+
+val EntityType<*>.backingType: EntityType<*>? get() = BestiumEntityType.of(this).`bestium$getBackingType`()
+
+val EntityType<*>.clientDataMask: Long get() = BestiumEntityType.of(this).`bestium$getClientDataMask`()
@@ -1,9 +1,11 @@
 package cz.jeme.bestium.inject
 
 import com.mojang.datafixers.DataFixUtils
+import cz.jeme.bestium.EntityManagerImpl
 import cz.jeme.bestium.api.inject.ConvertFunction
 import cz.jeme.bestium.api.inject.EntityInjection
 import cz.jeme.bestium.config.logVerbose
+import cz.jeme.bestium.jfr.InjectionPhaseEvent
 import cz.jeme.bestium.util.toIdentifier
 import cz.jeme.bestium.util.toNamespacedKey
 import net.kyori.adventure.key.Key
@@ -33,6 +35,7 @@ import org.bukkit.craftbukkit.entity.CraftEntityTypes.EntityTypeData
 import java.util.*
 import java.util.function.BiFunction
 import java.util.function.Consumer
+import java.util.function.IntPredicate
 import com.mojang.datafixers.types.Type as DataFixerType
 import org.bukkit.Registry as BukkitRegistry
 import org.bukkit.entity.Entity as BukkitEntity
@@ -40,6 +43,26 @@ import org.bukkit.entity.EntityType as BukkitEntityType
 
 private const val PHASES = 3
 
+/**
+ * Wraps an entity factory so that every entity it creates is tracked by the [EntityManagerImpl].
+ * This way only the construction of injected entities is affected.
+ */
+private fun <M : Entity> EntityType.EntityFactory<M>.tracking() = EntityType.EntityFactory<M> { type, level ->
+    create(type, level)?.also(EntityManagerImpl::trackEntity)
+}
+
+/**
+ * Compiles a client data filter into a bitmask, where bit `n` is set if data ID `n` may be sent to the client.
+ * The shared flags are always allowed, so a compiled mask is never `0`.
+ */
+private fun compileClientDataMask(filter: IntPredicate): Long {
+    var mask = 1L shl Entity.DATA_SHARED_FLAGS_ID.id
+    for (id in 0 until Long.SIZE_BITS) {
+        if (filter.test(id)) mask = mask or (1L shl id)
+    }
+    return mask
+}
+
 class InjectionUnit(val injections: Collection<EntityInjection<*, *>>) {
     private val logger = ComponentLogger.logger("BestiumInjection")
     private val _types = mutableMapOf<Class<out Entity>, EntityType<*>>()
@@ -52,7 +75,18 @@ class InjectionUnit(val injections: Collection<EntityInjection<*, *>>) {
         if (logVerbose) logger.info("[Phase $phase/$PHASES] $msg")
     }
 
-    private fun injectBiomes() {
+    private inline fun recordPhase(phase: String, inject: () -> Unit) {
+        val event = InjectionPhaseEvent()
+        event.begin()
+        inject()
+        if (event.shouldCommit()) {
+            event.phase = phase
+            event.injectionKeys = injections.joinToString(",") { it.key.asString() }
+            event.commit()
+        }
+    }
+
+    private fun injectBiomes() = recordPhase("biome") {
         fun logPhase2(msg: String) = logPhase(2, msg)
 
         logPhase2("Starting entity injection (biome phase)")
@@ -95,7 +129,7 @@ class InjectionUnit(val injections: Collection<EntityInjection<*, *>>) {
         logPhase2("Done")
     }
 
-    fun injectBootstrap() {
+    fun injectBootstrap() = recordPhase("bootstrap") {
         fun logPhase1(msg: String) = logPhase(1, msg)
 
         logPhase1("Starting entity injection (bootstrap phase)")
@@ -131,8 +165,9 @@ class InjectionUnit(val injections: Collection<EntityInjection<*, *>>) {
                 ?: throw IllegalStateException("No data fixer registered for backing type: '$backingType'")
 
             // create main entity type
+            @Suppress("UNCHECKED_CAST")
             val nmsType = EntityType.Builder.of(
-                inj.entityFactory,
+                (inj.entityFactory as EntityType.EntityFactory<Entity>).tracking(),
                 inj.mobCategory
             )
                 .clientTrackingRange(backingType.clientTrackingRange())
@@ -153,6 +188,9 @@ class InjectionUnit(val injections: Collection<EntityInjection<*, *>>) {
             entityTypeRegistry.createIntrusiveHolder(nmsType)
             Registry.register(entityTypeRegistry, keyStr, nmsType)
 
+            // store Bestium data directly on the entity type
+            BestiumEntityType.of(nmsType).`bestium$inject`(backingType, compileClientDataMask(inj.clientDataFilter))
+
             // register default attributes
             inj.defaultAttributes?.let { attributes ->
                 @Suppress("UNCHECKED_CAST")
@@ -176,7 +214,10 @@ class InjectionUnit(val injections: Collection<EntityInjection<*, *>>) {
 
     fun injectLoad() {
         injectBiomes()
+        injectBukkit()
+    }
 
+    private fun injectBukkit() = recordPhase("load") {
         fun logPhase3(msg: String) = logPhase(3, msg)
 
         logPhase3("Starting injection (load phase)")
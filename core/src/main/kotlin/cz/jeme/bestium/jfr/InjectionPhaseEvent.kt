@@ -0,0 +1,27 @@
+package cz.jeme.bestium.jfr
+
+import jdk.jfr.Category
+import jdk.jfr.Description
+import jdk.jfr.Enabled
+import jdk.jfr.Event
+import jdk.jfr.Label
+import jdk.jfr.Name
+import jdk.jfr.StackTrace
+
+@Name("cz.jeme.bestium.InjectionPhase")
+@Label("Injection Phase")
+@Description("A phase of injecting the Bestium entities into the server")
+@Category(JFR_CATEGORY)
+@Enabled(false)
+@StackTrace(false)
+class InjectionPhaseEvent : Event() {
+    @Label("Phase")
+    @Description("The name of the injection phase (bootstrap, biome or load)")
+    @JvmField
+    var phase: String? = null
+
+    @Label("Injection Keys")
+    @Description("The keys of all the injected entities, separated by commas")
+    @JvmField
+    var injectionKeys: String? = null
+}
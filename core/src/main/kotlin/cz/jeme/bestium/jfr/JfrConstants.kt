@@ -0,0 +1,6 @@
+package cz.jeme.bestium.jfr
+
+/**
+ * The JFR category all Bestium events are listed under.
+ */
+const val JFR_CATEGORY = "Bestium"
@@ -0,0 +1,29 @@
+package cz.jeme.bestium.jfr
+
+import jdk.jfr.Category
+import jdk.jfr.Description
+import jdk.jfr.Enabled
+import jdk.jfr.Event
+import jdk.jfr.Label
+import jdk.jfr.Name
+import jdk.jfr.StackTrace
+
+@Name("cz.jeme.bestium.ModelApply")
+@Label("Model Application")
+@Description("A BetterModel model being applied to an injected entity")
+@Category(JFR_CATEGORY)
+@Enabled(false)
+@StackTrace(false)
+class ModelApplyEvent : Event() {
+    @Label("Injection Key")
+    @JvmField
+    var injectionKey: String? = null
+
+    @Label("Variant")
+    @JvmField
+    var variant: String? = null
+
+    @Label("Model Name")
+    @JvmField
+    var modelName: String? = null
+}
@@ -0,0 +1,35 @@
+package cz.jeme.bestium.jfr
+
+import jdk.jfr.Category
+import jdk.jfr.Description
+import jdk.jfr.Enabled
+import jdk.jfr.Event
+import jdk.jfr.Label
+import jdk.jfr.Name
+import jdk.jfr.StackTrace
+
+@Name("cz.jeme.bestium.PacketRewrite")
+@Label("Packet Rewrite")
+@Description("An entity data packet of an injected entity being rewritten or suppressed")
+@Category(JFR_CATEGORY)
+@Enabled(false)
+@StackTrace(false)
+class PacketRewriteEvent : Event() {
+    @Label("Site")
+    @Description("The rewrite site, see RewriteSite")
+    @JvmField
+    var site: String? = null
+
+    @Label("Entity ID")
+    @JvmField
+    var entityId: Int = 0
+
+    @Label("Rewritten")
+    @Description("Whether the packet was changed (or suppressed when broadcasting)")
+    @JvmField
+    var rewritten: Boolean = false
+
+    @Label("Dropped Values")
+    @JvmField
+    var droppedValues: Int = 0
+}
@@ -0,0 +1,31 @@
+package cz.jeme.bestium.jfr
+
+import jdk.jfr.Category
+import jdk.jfr.Description
+import jdk.jfr.Enabled
+import jdk.jfr.Event
+import jdk.jfr.Label
+import jdk.jfr.Name
+import jdk.jfr.StackTrace
+
+@Name("cz.jeme.bestium.PostInitialize")
+@Label("Entity Post-Initialization")
+@Description("An injected entity being initialized after it was added to a world")
+@Category(JFR_CATEGORY)
+@Enabled(false)
+@StackTrace(false)
+class PostInitializeEvent : Event() {
+    @Label("Injection Key")
+    @JvmField
+    var injectionKey: String? = null
+
+    @Label("Variant")
+    @Description("The ID of the variant of the entity, or NONE if the entity has no variant")
+    @JvmField
+    var variant: String? = null
+
+    @Label("First Spawn")
+    @Description("Whether the entity was spawned for the first time, rather than loaded")
+    @JvmField
+    var firstSpawn: Boolean = false
+}
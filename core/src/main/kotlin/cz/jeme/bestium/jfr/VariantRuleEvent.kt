@@ -0,0 +1,31 @@
+package cz.jeme.bestium.jfr
+
+import jdk.jfr.Category
+import jdk.jfr.Description
+import jdk.jfr.Enabled
+import jdk.jfr.Event
+import jdk.jfr.Label
+import jdk.jfr.Name
+import jdk.jfr.StackTrace
+
+@Name("cz.jeme.bestium.VariantRule")
+@Label("Variant Rule Evaluation")
+@Description("A variant rule picking the variant of a spawning entity")
+@Category(JFR_CATEGORY)
+@Enabled(false)
+@StackTrace(false)
+class VariantRuleEvent : Event() {
+    @Label("Injection Key")
+    @JvmField
+    var injectionKey: String? = null
+
+    @Label("Variant")
+    @Description("The ID of the picked variant, or NONE if no variant was picked")
+    @JvmField
+    var variant: String? = null
+
+    @Label("Rule")
+    @Description("The class of the evaluated variant rule")
+    @JvmField
+    var rule: Class<*>? = null
+}
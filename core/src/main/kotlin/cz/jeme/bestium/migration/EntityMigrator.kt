@@ -0,0 +1,104 @@
+package cz.jeme.bestium.migration
+
+import cz.jeme.bestium.CURRENT_DATA_VERSION
+import cz.jeme.bestium.NO_VARIANT_ID
+import cz.jeme.bestium.api.EntityDataMigration
+import cz.jeme.bestium.api.inject.EntityInjection
+import cz.jeme.bestium.persistence.EntityState
+import cz.jeme.bestium.persistence.MAX_INJECTION_DATA_VERSION
+import cz.jeme.bestium.persistence.NO_VARIANT_INDEX
+import cz.jeme.bestium.persistence.PersistentData
+import cz.jeme.bestium.persistence.VariantIdTable
+import java.util.concurrent.ConcurrentHashMap
+import org.bukkit.entity.Entity as BukkitEntity
+
+/**
+ * Brings the persistent data of loaded entities up to date, both the data of Bestium itself,
+ * versioned by [CURRENT_DATA_VERSION], and the data of the injections, versioned by the migration steps
+ * registered for them.
+ */
+object EntityMigrator {
+    private data class BestiumContext(val entity: BukkitEntity, val injection: EntityInjection<*, *>)
+
+    // data version 1 is the oldest one ever written
+    private val bestiumChain = MigrationChain<BestiumContext>(1).apply {
+        // version 1 stored the variant id and the pending model name as strings
+        register(1) { (entity, injection) ->
+            PersistentData.LEGACY_VARIANT_ID[entity]?.let {
+                PersistentData.LEGACY_VARIANT_INDEX[entity] =
+                    if (it == NO_VARIANT_ID) NO_VARIANT_INDEX else VariantIdTable[injection].indexOf(it)
+            }
+            if (PersistentData.LEGACY_MODEL_NAME.has(entity)) PersistentData.LEGACY_MODEL_PENDING[entity] = true
+            PersistentData.LEGACY_VARIANT_ID.remove(entity)
+            PersistentData.LEGACY_MODEL_NAME.remove(entity)
+            PersistentData.LEGACY_DATA_VERSION[entity] = 2
+        }
+
+        // version 2 stored the variant index and the pending model flag in separate entries
+        register(2) { (entity, _) ->
+            PersistentData.LEGACY_VARIANT_INDEX[entity]?.let {
+                PersistentData.BESTIUM_STATE[entity] =
+                    EntityState(3, it, PersistentData.LEGACY_MODEL_PENDING[entity] ?: false)
+            }
+            PersistentData.LEGACY_DATA_VERSION.remove(entity)
+            PersistentData.LEGACY_VARIANT_INDEX.remove(entity)
+            PersistentData.LEGACY_MODEL_PENDING.remove(entity)
+        }
+
+        check(version == CURRENT_DATA_VERSION) { "Missing migration steps up to data version $CURRENT_DATA_VERSION" }
+    }
+
+    private val injectionChains = ConcurrentHashMap<EntityInjection<*, *>, MigrationChain<BukkitEntity>>()
+
+    fun register(injection: EntityInjection<*, *>, fromVersion: Int, migration: EntityDataMigration) {
+        require(fromVersion < MAX_INJECTION_DATA_VERSION) {
+            "Data version of an injection cannot exceed $MAX_INJECTION_DATA_VERSION"
+        }
+        injectionChains
+            .computeIfAbsent(injection) { MigrationChain(0) }
+            .register(fromVersion, migration::migrate)
+    }
+
+    fun dataVersion(injection: EntityInjection<*, *>) = injectionChains[injection]?.version ?: 0
+
+    /**
+     * Reads the state of an entity, migrating its data first if it was saved with an older data version.
+     * A legacy variant saved without any data version is migrated from data version 1.
+     *
+     * Returns `null` if the entity holds no Bestium data yet.
+     *
+     * @throws MigrationException if the data of Bestium itself could not be migrated, the failure is already reported
+     */
+    fun load(entity: BukkitEntity, injection: EntityInjection<*, *>): EntityState? {
+        var state = PersistentData.BESTIUM_STATE[entity]
+
+        if (state == null || state.dataVersion < CURRENT_DATA_VERSION) {
+            val dataVersion = state?.dataVersion ?: PersistentData.LEGACY_DATA_VERSION[entity]
+            // a variant stored without a data version has the version 1 format, it must not be rerolled
+            ?: if (PersistentData.LEGACY_VARIANT_ID.has(entity)) 1 else return null
+            try {
+                bestiumChain.migrate(BestiumContext(entity, injection), dataVersion)
+            } catch (e: MigrationException) {
+                MigrationErrorReporter.report("Bestium", e.fromVersion, entity, e.cause ?: e)
+                throw e
+            }
+            // no variant was assigned before the entity got saved, so it is treated as new
+            state = PersistentData.BESTIUM_STATE[entity] ?: return null
+        }
+
+        val chain = injectionChains[injection] ?: return state
+        val injectionDataVersion = state.injectionDataVersion
+        // up to date, or saved by a newer version of the plugin providing the injection
+        if (injectionDataVersion >= chain.version) return state
+
+        val reachedVersion = try {
+            chain.migrate(entity, injectionDataVersion)
+            chain.version
+        } catch (e: MigrationException) {
+            MigrationErrorReporter.report("'${injection.key.asString()}'", e.fromVersion, entity, e.cause ?: e)
+            e.fromVersion
+        }
+        if (reachedVersion == injectionDataVersion) return state
+        return state.copy(injectionDataVersion = reachedVersion).also { PersistentData.BESTIUM_STATE[entity] = it }
+    }
+}
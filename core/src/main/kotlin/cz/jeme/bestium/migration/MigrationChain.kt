@@ -0,0 +1,55 @@
+package cz.jeme.bestium.migration
+
+/**
+ * Thrown by [MigrationChain.migrate] when a step fails.
+ *
+ * @param fromVersion the version the failed step migrates from, which is also the version the data was left at
+ */
+class MigrationException(val fromVersion: Int, cause: Exception) :
+    RuntimeException("Migration from data version $fromVersion failed", cause)
+
+/**
+ * An ordered chain of migration steps, one per version pair, each migrating data from one version to the next one.
+ *
+ * @param firstVersion the oldest version data can be migrated from
+ */
+class MigrationChain<C>(private val firstVersion: Int) {
+    private val steps = mutableListOf<(C) -> Unit>()
+
+    /**
+     * The version data is migrated to, there is one step less than that above [firstVersion].
+     */
+    @Volatile
+    var version = firstVersion
+        private set
+
+    /**
+     * Appends a step migrating data from the given version to the next one.
+     *
+     * @throws IllegalArgumentException if the given version is not the current [version]
+     */
+    @Synchronized
+    fun register(fromVersion: Int, step: (C) -> Unit) {
+        require(fromVersion == version) { "Expected a migration step from data version $version, got $fromVersion" }
+        steps += step
+        version++
+    }
+
+    /**
+     * Applies all the steps from the given version up to the current [version] in order.
+     *
+     * @throws MigrationException if a step fails, the steps before it remain applied
+     */
+    fun migrate(context: C, fromVersion: Int) {
+        if (fromVersion < firstVersion) throw MigrationException(
+            fromVersion, IllegalArgumentException("Data version $fromVersion is older than the oldest supported $firstVersion")
+        )
+        for (from in fromVersion until version) {
+            try {
+                steps[from - firstVersion](context)
+            } catch (e: Exception) {
+                throw MigrationException(from, e)
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package cz.jeme.bestium.migration
+
+import cz.jeme.bestium.BestiumPlugin
+import net.kyori.adventure.text.logger.slf4j.ComponentLogger
+import org.bukkit.Bukkit
+import org.bukkit.entity.Entity as BukkitEntity
+
+// failures are collected for this many ticks before being logged
+private const val REPORT_INTERVAL_TICKS = 20L
+
+/**
+ * Collects migration failures and logs them in batches, one summary per failing migration step,
+ * so that a chunk full of broken entities does not log an error per entity.
+ *
+ * Must only be accessed from the main thread.
+ */
+object MigrationErrorReporter {
+    private val logger = ComponentLogger.logger("BestiumMigration")
+
+    private class Failures(val firstEntity: String, val firstCause: Throwable) {
+        var count = 0
+    }
+
+    // (owner, from version) -> failures
+    private val failures = linkedMapOf<Pair<String, Int>, Failures>()
+    private var flushScheduled = false
+
+    /**
+     * Records a failed migration step.
+     *
+     * @param owner what the data belongs to, either Bestium itself or an injection, used in the logged message
+     * @param fromVersion the version the failed step migrates from
+     */
+    fun report(owner: String, fromVersion: Int, entity: BukkitEntity, cause: Throwable) {
+        failures.getOrPut(owner to fromVersion) {
+            val location = entity.location
+            Failures(
+                "'${entity.uniqueId}' in '${location.world.name}' at ${location.blockX}, ${location.blockY}, ${location.blockZ}",
+                cause
+            )
+        }.count++
+
+        if (flushScheduled) return
+        flushScheduled = true
+        Bukkit.getScheduler().runTaskLater(BestiumPlugin, ::flush, REPORT_INTERVAL_TICKS)
+    }
+
+    private fun flush() {
+        flushScheduled = false
+        for ((key, failure) in failures) {
+            val (owner, fromVersion) = key
+            val others = failure.count - 1
+            logger.error(
+                "Could not migrate the $owner data of entity ${failure.firstEntity} from data version $fromVersion" +
+                        if (others == 0) "" else " (and $others more entit${if (others == 1) "y" else "ies"})",
+                failure.firstCause
+            )
+        }
+        failures.clear()
+    }
+}
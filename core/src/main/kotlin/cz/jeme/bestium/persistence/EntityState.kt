@@ -0,0 +1,63 @@
+package cz.jeme.bestium.persistence
+
+import org.bukkit.persistence.PersistentDataAdapterContext
+import org.bukkit.persistence.PersistentDataType
+
+private const val DATA_VERSION_SHIFT = 48
+private const val INJECTION_DATA_VERSION_SHIFT = 33
+private const val INJECTION_DATA_VERSION_MASK = 0x7FFFL
+private const val MODEL_PENDING_BIT = 1L shl 32
+private const val VARIANT_INDEX_MASK = 0xFFFFFFFFL
+
+/**
+ * The highest data version of an injection that fits into the packed [EntityState].
+ */
+const val MAX_INJECTION_DATA_VERSION = INJECTION_DATA_VERSION_MASK.toInt()
+
+/**
+ * All persistent state Bestium keeps about a single entity, stored as one packed entry.
+ *
+ * @param dataVersion the data version the state was written with
+ * @param variantIndex the index of the variant in the [VariantIdTable] of the injection,
+ * or [NO_VARIANT_INDEX] if the entity has no variant
+ * @param modelPending whether the model of the variant still has to be applied, because BetterModel was not loaded
+ * @param injectionDataVersion the data version of the injection the entity was migrated to
+ */
+data class EntityState(
+    val dataVersion: Int,
+    val variantIndex: Int,
+    val modelPending: Boolean,
+    val injectionDataVersion: Int = 0
+)
+
+/**
+ * Packs an [EntityState] into a single `long`.
+ *
+ * The upper 16 bits hold the data version, the next 15 bits the injection data version,
+ * bit 32 the pending model flag and the lower 32 bits the variant index.
+ */
+object EntityStatePersistentDataType : PersistentDataType<Long, EntityState> {
+    override fun getPrimitiveType() = Long::class.javaObjectType
+
+    override fun getComplexType() = EntityState::class.java
+
+    override fun toPrimitive(
+        complex: EntityState,
+        context: PersistentDataAdapterContext
+    ): Long {
+        var packed = complex.dataVersion.toLong() shl DATA_VERSION_SHIFT
+        packed = packed or (complex.injectionDataVersion.toLong() shl INJECTION_DATA_VERSION_SHIFT)
+        if (complex.modelPending) packed = packed or MODEL_PENDING_BIT
+        return packed or (complex.variantIndex.toLong() and VARIANT_INDEX_MASK)
+    }
+
+    override fun fromPrimitive(
+        primitive: Long,
+        context: PersistentDataAdapterContext
+    ) = EntityState(
+        (primitive ushr DATA_VERSION_SHIFT).toInt(),
+        (primitive and VARIANT_INDEX_MASK).toInt(),
+        primitive and MODEL_PENDING_BIT != 0L,
+        ((primitive ushr INJECTION_DATA_VERSION_SHIFT) and INJECTION_DATA_VERSION_MASK).toInt()
+    )
+}
@@ -13,9 +13,14 @@ class PersistentData<P : Any, C : Any> private constructor(
     val type: PersistentDataType<P, C>
 ) {
     companion object {
-        val BESTIUM_DATA_VERSION = PersistentData(createKey("data_version"), PersistentDataType.INTEGER)
-        val BESTIUM_VARIANT = PersistentData(createKey("variant"), PersistentDataType.STRING)
-        val BESTIUM_PENDING_MODEL = PersistentData(createKey("pending_model"), PersistentDataType.STRING)
+        val BESTIUM_STATE = PersistentData(createKey("state"), EntityStatePersistentDataType)
+
+        // data versions 1 and 2 stored the state in separate entries, these are migrated to the entry above
+        val LEGACY_DATA_VERSION = PersistentData(createKey("data_version"), PersistentDataType.INTEGER)
+        val LEGACY_VARIANT_ID = PersistentData(createKey("variant"), PersistentDataType.STRING) // version 1
+        val LEGACY_MODEL_NAME = PersistentData(createKey("pending_model"), PersistentDataType.STRING) // version 1
+        val LEGACY_VARIANT_INDEX = PersistentData(createKey("variant_index"), PersistentDataType.INTEGER) // version 2
+        val LEGACY_MODEL_PENDING = PersistentData(createKey("model_pending"), PersistentDataType.BOOLEAN) // version 2
     }
 
     operator fun get(container: PersistentDataContainerView): C? = container.get(key, type)
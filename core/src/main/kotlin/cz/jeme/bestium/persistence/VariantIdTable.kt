@@ -0,0 +1,110 @@
+package cz.jeme.bestium.persistence
+
+import cz.jeme.bestium.api.inject.EntityInjection
+import cz.jeme.bestium.dataFolder
+import net.kyori.adventure.key.Key
+import net.kyori.adventure.text.logger.slf4j.ComponentLogger
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.io.path.createDirectories
+import kotlin.io.path.exists
+import kotlin.io.path.readLines
+
+/**
+ * The variant index stored for entities without a variant.
+ */
+const val NO_VARIANT_INDEX = 0
+
+private const val TABLE_HEADER = "# Bestium variant id table, do not edit. The n-th id line below holds the variant stored as index n."
+
+private val logger = ComponentLogger.logger("BestiumVariants")
+
+/**
+ * Maps the variant ids of one injection to small integer indices, so that entities only have to persist the index.
+ *
+ * The table is append-only and is stored in the plugin data folder, an index is never reassigned to a different id,
+ * not even when the variant is removed from the injection. Index [NO_VARIANT_INDEX] is reserved for entities
+ * without a variant.
+ */
+class VariantIdTable private constructor(private val file: Path) {
+    companion object {
+        private val tables = ConcurrentHashMap<Key, VariantIdTable>()
+
+        /**
+         * Returns the variant id table of the injection, loading it from disk when first requested.
+         */
+        operator fun get(injection: EntityInjection<*, *>): VariantIdTable = tables.computeIfAbsent(injection.key) {
+            VariantIdTable(dataFolder.resolve("variants").resolve(it.namespace()).resolve("${it.value()}.txt"))
+        }
+
+        /**
+         * Assigns indices to all variants of the injections up front, so that entities never have to wait for a write.
+         *
+         * A table that cannot be saved is only logged, its variants are assigned again when first stored.
+         */
+        fun registerAll(injections: Collection<EntityInjection<*, *>>) {
+            injections.forEach {
+                try {
+                    this[it].register(it.variants.keys)
+                } catch (e: Exception) {
+                    logger.error("Could not save the variant id table of '${it.key.asString()}'", e)
+                }
+            }
+        }
+    }
+
+    // index 0 is never read from this list
+    private val ids = mutableListOf<String?>(null)
+    private val indices = hashMapOf<String, Int>()
+
+    init {
+        if (file.exists()) {
+            file.readLines()
+                .filter { it.isNotEmpty() && !it.startsWith('#') }
+                .forEach { id ->
+                    indices[id] = ids.size
+                    ids += id
+                }
+        }
+    }
+
+    /**
+     * Returns the variant id stored as the given index, or `null` if the index is unknown.
+     */
+    @Synchronized
+    fun idOf(index: Int): String? = if (index in 1 until ids.size) ids[index] else null
+
+    /**
+     * Returns the index of the given variant id, assigning and persisting a new one if the id is not known yet.
+     *
+     * @throws java.io.IOException if a new index could not be persisted, the index is not assigned then
+     */
+    @Synchronized
+    fun indexOf(id: String): Int = indices[id] ?: run {
+        register(listOf(id))
+        indices.getValue(id)
+    }
+
+    @Synchronized
+    private fun register(newIds: Collection<String>) {
+        val added = newIds.filter { it !in indices }
+        if (added.isEmpty()) return
+        val firstIndex = ids.size
+        added.forEach { id ->
+            indices[id] = ids.size
+            ids += id
+        }
+        try {
+            file.parent.createDirectories()
+            val lines = if (file.exists()) added else listOf(TABLE_HEADER) + added
+            Files.write(file, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+        } catch (e: Exception) {
+            // an index that is not persisted must never be stored by an entity, it could be reassigned after a restart
+            added.forEach(indices::remove)
+            ids.subList(firstIndex, ids.size).clear()
+            throw e
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package cz.jeme.bestium.stats
+
+import cz.jeme.bestium.api.PostInitializationStatistics
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.LongAdder
+
+object PostInitializationStatisticsImpl : PostInitializationStatistics {
+    private val queueDepth = AtomicInteger()
+    private val processed = LongAdder()
+    private val totalLatencyNanos = LongAdder()
+    private val maxLatencyNanos = AtomicLong()
+
+    fun enqueued() {
+        queueDepth.incrementAndGet()
+    }
+
+    /**
+     * Records entities leaving the queue without being processed.
+     */
+    fun dropped(count: Int = 1) {
+        queueDepth.addAndGet(-count)
+    }
+
+    /**
+     * Records an entity leaving the queue after being processed.
+     */
+    fun processed(latencyNanos: Long) {
+        queueDepth.decrementAndGet()
+        processed.increment()
+        totalLatencyNanos.add(latencyNanos)
+        maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max)
+    }
+
+    override fun getQueueDepth() = queueDepth.get()
+
+    override fun getProcessed() = processed.sum()
+
+    override fun getTotalLatencyNanos() = totalLatencyNanos.sum()
+
+    override fun getMaxLatencyNanos() = maxLatencyNanos.get()
+}
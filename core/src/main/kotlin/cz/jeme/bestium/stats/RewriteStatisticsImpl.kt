@@ -0,0 +1,70 @@
+package cz.jeme.bestium.stats
+
+import cz.jeme.bestium.api.RewriteSite
+import cz.jeme.bestium.api.RewriteStatistics
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.atomic.AtomicLongArray
+import java.util.concurrent.atomic.LongAdder
+
+// must be a power of two
+private const val SAMPLING_INTERVAL = 64
+
+/**
+ * Returned by [RewriteStatisticsImpl.startSample] when the call is not sampled.
+ */
+const val NOT_SAMPLED = Long.MIN_VALUE
+
+class RewriteStatisticsImpl(private val site: RewriteSite) : RewriteStatistics {
+    companion object {
+        private val sites = RewriteSite.entries.map(::RewriteStatisticsImpl)
+
+        operator fun get(site: RewriteSite) = sites[site.ordinal]
+    }
+
+    private val inspected = LongAdder()
+    private val rewritten = LongAdder()
+    private val droppedValues = LongAdder()
+    private val samples = LongAdder()
+    private val sampledNanos = LongAdder()
+    private val histogram = AtomicLongArray(RewriteStatistics.LATENCY_BUCKETS)
+
+    /**
+     * Decides whether the current call is sampled, returning the start time if so, [NOT_SAMPLED] otherwise.
+     */
+    fun startSample(): Long {
+        return if (ThreadLocalRandom.current().nextInt() and (SAMPLING_INTERVAL - 1) == 0) System.nanoTime()
+        else NOT_SAMPLED
+    }
+
+    /**
+     * Records a single call to this site.
+     *
+     * @param start the value returned by [startSample] at the beginning of the call
+     */
+    fun record(start: Long, rewritten: Boolean, droppedValues: Int = 0) {
+        inspected.increment()
+        if (rewritten) this.rewritten.increment()
+        if (droppedValues != 0) this.droppedValues.add(droppedValues.toLong())
+        if (start == NOT_SAMPLED) return
+        val nanos = (System.nanoTime() - start).coerceAtLeast(1)
+        samples.increment()
+        sampledNanos.add(nanos)
+        histogram.incrementAndGet(Long.SIZE_BITS - 1 - java.lang.Long.numberOfLeadingZeros(nanos))
+    }
+
+    override fun getSite() = site
+
+    override fun getInspected() = inspected.sum()
+
+    override fun getRewritten() = rewritten.sum()
+
+    override fun getDroppedValues() = droppedValues.sum()
+
+    override fun getSamplingInterval() = SAMPLING_INTERVAL
+
+    override fun getSamples() = samples.sum()
+
+    override fun getSampledNanos() = sampledNanos.sum()
+
+    override fun getLatencyHistogram() = LongArray(histogram.length()) { histogram[it] }
+}
@@ -0,0 +1,132 @@
+package cz.jeme.bestium.util
+
+import it.unimi.dsi.fastutil.HashCommon
+import java.util.concurrent.atomic.AtomicIntegerArray
+import java.util.concurrent.atomic.AtomicLongArray
+
+private const val STRIPE_BITS = 4
+private const val STRIPES = 1 shl STRIPE_BITS
+private const val INITIAL_CAPACITY = 64
+private const val MAX_FILL = 0.5f
+
+// keys are stored incremented by one, so these can never collide with a valid (non-negative) key
+private const val EMPTY = 0
+private const val REMOVED = -1
+
+/**
+ * A concurrent map of non-negative `int` keys to `long` values.
+ *
+ * Reads are lock-free and never allocate, writes lock one of the stripes the map is split into.
+ * Absent keys are reported with the value `0`, so `0` should not be used as a meaningful value.
+ *
+ * Every stripe is an open addressing table. A slot is never reassigned to a different key,
+ * removed keys are only marked and are dropped once the table is rebuilt, and a rebuilt table
+ * is published as a whole. This is what makes reading without a lock safe.
+ */
+class ConcurrentIntLongMap {
+    private class Table(capacity: Int) {
+        val keys = AtomicIntegerArray(capacity)
+        val values = AtomicLongArray(capacity)
+        val mask = capacity - 1
+        val maxUsed = (capacity * MAX_FILL).toInt()
+
+        // both guarded by the stripe lock
+        var size = 0 // live entries
+        var used = 0 // live and removed entries
+    }
+
+    private class Stripe {
+        @Volatile
+        var table = Table(INITIAL_CAPACITY)
+    }
+
+    private val stripes = Array(STRIPES) { Stripe() }
+
+    private fun stripe(hash: Int) = stripes[hash ushr (Int.SIZE_BITS - STRIPE_BITS)]
+
+    private fun Table.indexOf(storedKey: Int, hash: Int): Int {
+        var index = hash and mask
+        while (true) {
+            val key = keys.getAcquire(index)
+            if (key == storedKey) return index
+            if (key == EMPTY) return -1
+            index = (index + 1) and mask
+        }
+    }
+
+    /**
+     * Returns the value of the given key, or `0` if the key is not present.
+     */
+    operator fun get(key: Int): Long {
+        if (key < 0) return 0L
+        val hash = HashCommon.mix(key)
+        val table = stripe(hash).table
+        val index = table.indexOf(key + 1, hash)
+        return if (index == -1) 0L else table.values[index]
+    }
+
+    operator fun contains(key: Int) = get(key) != 0L
+
+    /**
+     * Associates the given value with the given key.
+     */
+    operator fun set(key: Int, value: Long) {
+        require(key >= 0) { "Key must not be negative: $key" }
+        val hash = HashCommon.mix(key)
+        val stripe = stripe(hash)
+        synchronized(stripe) {
+            var table = stripe.table
+            val existing = table.indexOf(key + 1, hash)
+            if (existing != -1) {
+                table.values[existing] = value
+                return
+            }
+            if (table.used + 1 > table.maxUsed) {
+                table = rebuild(table)
+                stripe.table = table
+            }
+            var index = hash and table.mask
+            while (table.keys.getPlain(index) != EMPTY) index = (index + 1) and table.mask
+            // the value has to be visible before the key is
+            table.values.setPlain(index, value)
+            table.keys.setRelease(index, key + 1)
+            table.size++
+            table.used++
+        }
+    }
+
+    /**
+     * Removes the given key, returning its previous value or `0` if the key was not present.
+     */
+    fun remove(key: Int): Long {
+        if (key < 0) return 0L
+        val hash = HashCommon.mix(key)
+        val stripe = stripe(hash)
+        synchronized(stripe) {
+            val table = stripe.table
+            val index = table.indexOf(key + 1, hash)
+            if (index == -1) return 0L
+            table.keys.setRelease(index, REMOVED)
+            table.size--
+            return table.values[index]
+        }
+    }
+
+    private fun rebuild(old: Table): Table {
+        var capacity = INITIAL_CAPACITY
+        // keep the live entries below a quarter of the capacity, so the next rebuild is not imminent
+        while ((capacity * MAX_FILL).toInt() < (old.size + 1) * 2) capacity = capacity shl 1
+        val table = Table(capacity)
+        for (i in 0 until old.keys.length()) {
+            val key = old.keys.getPlain(i)
+            if (key == EMPTY || key == REMOVED) continue
+            var index = HashCommon.mix(key - 1) and table.mask
+            while (table.keys.getPlain(index) != EMPTY) index = (index + 1) and table.mask
+            table.keys.setPlain(index, key)
+            table.values.setPlain(index, old.values.getPlain(i))
+        }
+        table.size = old.size
+        table.used = old.size
+        return table
+    }
+}
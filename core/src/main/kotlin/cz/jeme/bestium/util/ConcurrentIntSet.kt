@@ -0,0 +1,20 @@
+package cz.jeme.bestium.util
+
+/**
+ * A concurrent set of non-negative `int` values with lock-free reads.
+ *
+ * @see ConcurrentIntLongMap
+ */
+class ConcurrentIntSet {
+    private val map = ConcurrentIntLongMap()
+
+    operator fun contains(value: Int) = value in map
+
+    fun add(value: Int) {
+        map[value] = 1L
+    }
+
+    operator fun plusAssign(value: Int) = add(value)
+
+    fun remove(value: Int) = map.remove(value) != 0L
+}
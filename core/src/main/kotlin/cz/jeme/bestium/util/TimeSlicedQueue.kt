@@ -0,0 +1,109 @@
+package cz.jeme.bestium.util
+
+import org.bukkit.Bukkit
+import org.bukkit.plugin.Plugin
+import org.bukkit.scheduler.BukkitTask
+
+/**
+ * A queue of work processed on the main thread in batches, spending at most a time budget per tick.
+ *
+ * Items are processed in insertion order. At least one item is processed per tick,
+ * so that the queue always progresses, even with a budget of `0`.
+ * The queue is only scheduled while it holds items. It must only be accessed from the main thread.
+ *
+ * Work can also be done right away with [runNow] while nothing is queued, sharing the budget of the current tick.
+ *
+ * @param budgetNanos supplies the time budget per tick in nanoseconds, queried at the start of every tick
+ * @param process processes a single item
+ */
+class TimeSlicedQueue<T>(
+    private val plugin: Plugin,
+    private val budgetNanos: () -> Long,
+    private val process: (T) -> Unit
+) {
+    private val queue = ArrayDeque<T>()
+    private var task: BukkitTask? = null
+
+    // the time spent in the current tick, by the batch and by the work done right away
+    private var spentTick = -1
+    private var spentNanos = 0L
+
+    private fun spend(nanos: Long) {
+        val tick = Bukkit.getCurrentTick()
+        if (tick != spentTick) {
+            spentTick = tick
+            spentNanos = 0L
+        }
+        spentNanos += nanos
+    }
+
+    /**
+     * Called after every batch, with the number of items processed in it.
+     */
+    var afterBatch: ((Int) -> Unit)? = null
+
+    val size get() = queue.size
+
+    fun isEmpty() = queue.isEmpty()
+
+    fun add(item: T) {
+        queue.addLast(item)
+        schedule()
+    }
+
+    fun addAll(items: Collection<T>) {
+        if (items.isEmpty()) return
+        queue.addAll(items)
+        schedule()
+    }
+
+    /**
+     * Runs the given work right away if nothing is queued and the budget of the current tick is not spent yet,
+     * counting the time it takes against the budget.
+     *
+     * @return `true` if the work was run, `false` if it should be queued instead
+     */
+    fun runNow(work: () -> Unit): Boolean {
+        if (queue.isNotEmpty()) return false // keep the insertion order
+        spend(0L)
+        if (spentNanos >= budgetNanos()) return false
+        val start = System.nanoTime()
+        try {
+            work()
+        } finally {
+            spend(System.nanoTime() - start)
+        }
+        return true
+    }
+
+    /**
+     * Removes all the items from this queue without processing them.
+     */
+    fun clear() {
+        queue.clear()
+        cancel()
+    }
+
+    private fun schedule() {
+        if (task == null) task = Bukkit.getScheduler().runTaskTimer(plugin, ::drain, 1L, 1L)
+    }
+
+    private fun cancel() {
+        task?.cancel()
+        task = null
+    }
+
+    private fun drain() {
+        val start = System.nanoTime()
+        val deadline = start + budgetNanos()
+        var processed = 0
+        while (queue.isNotEmpty()) {
+            process(queue.removeFirst())
+            processed++
+            if (System.nanoTime() - deadline >= 0) break
+        }
+        spend(System.nanoTime() - start)
+        if (queue.isEmpty()) cancel()
+        afterBatch?.invoke(processed)
+    }
+}
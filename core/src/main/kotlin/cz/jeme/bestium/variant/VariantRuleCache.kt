@@ -0,0 +1,45 @@
+package cz.jeme.bestium.variant
+
+import cz.jeme.bestium.api.inject.variant.BoundEntityVariant
+import cz.jeme.bestium.api.inject.variant.EntitySpawnContext
+import cz.jeme.bestium.api.inject.variant.SpawnContextInput
+import cz.jeme.bestium.api.inject.variant.VariantRule
+import cz.jeme.bestium.config.Config
+import net.kyori.adventure.key.Key
+import net.minecraft.core.Holder
+import net.minecraft.world.level.biome.Biome
+
+// cached in place of a null result
+private val NO_VARIANT = Any()
+
+/**
+ * Caches the results of a deterministic variant rule, keyed by the values of the inputs the rule declared.
+ * Once the cache holds [Config.variantCacheSize] results, the least recently used ones are evicted.
+ *
+ * @see VariantRule.getDeterministicInputs
+ */
+class VariantRuleCache(private val rule: VariantRule, inputs: Set<SpawnContextInput>) {
+    private val readsWorld = SpawnContextInput.WORLD in inputs
+    private val readsBiome = SpawnContextInput.BIOME in inputs
+
+    // biomes are registry holders, so they are compared by identity
+    private data class CacheKey(val world: Key?, val biome: Holder<Biome>?)
+
+    private val results = object : LinkedHashMap<CacheKey, Any>(16, 0.75F, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<CacheKey, Any>) =
+            size > Config.variantCacheSize
+    }
+
+    fun apply(variants: Map<String, BoundEntityVariant>, context: EntitySpawnContext): BoundEntityVariant? {
+        val key = CacheKey(
+            if (readsWorld) context.worldKey else null,
+            if (readsBiome) context.biome else null
+        )
+        val cached = synchronized(results) { results[key] }
+        if (cached != null) return if (cached === NO_VARIANT) null else cached as BoundEntityVariant
+
+        val variant = rule.apply(variants, context)
+        synchronized(results) { results[key] = variant ?: NO_VARIANT }
+        return variant
+    }
+}
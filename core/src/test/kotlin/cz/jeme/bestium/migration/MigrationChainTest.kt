@@ -0,0 +1,63 @@
+package cz.jeme.bestium.migration
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+
+class MigrationChainTest {
+    private fun chain(steps: Int) = MigrationChain<MutableList<Int>>(1).apply {
+        for (from in 1..steps) register(from) { it += from }
+    }
+
+    @Test
+    fun `steps run in order from the given version`() {
+        val chain = chain(3)
+        assertEquals(4, chain.version)
+
+        val applied = mutableListOf<Int>()
+        chain.migrate(applied, 1)
+        assertEquals(listOf(1, 2, 3), applied)
+
+        applied.clear()
+        chain.migrate(applied, 3)
+        assertEquals(listOf(3), applied)
+    }
+
+    @Test
+    fun `current data is left alone`() {
+        val applied = mutableListOf<Int>()
+        chain(3).migrate(applied, 4)
+        assertEquals(emptyList<Int>(), applied)
+    }
+
+    @Test
+    fun `steps must be registered in order`() {
+        val chain = chain(2)
+        assertThrows<IllegalArgumentException> { chain.register(2) {} }
+        assertThrows<IllegalArgumentException> { chain.register(4) {} }
+        chain.register(3) {}
+        assertEquals(4, chain.version)
+    }
+
+    @Test
+    fun `failing step reports its version and keeps the previous steps`() {
+        val chain = chain(1)
+        val cause = IllegalStateException("broken")
+        chain.register(2) { throw cause }
+        chain.register(3) { it += 3 }
+
+        val applied = mutableListOf<Int>()
+        val e = assertThrows<MigrationException> { chain.migrate(applied, 1) }
+        assertEquals(2, e.fromVersion)
+        assertSame(cause, e.cause)
+        assertEquals(listOf(1), applied)
+    }
+
+    @Test
+    fun `versions older than the first are rejected`() {
+        val chain = MigrationChain<MutableList<Int>>(2).apply { register(2) { it += 2 } }
+        val e = assertThrows<MigrationException> { chain.migrate(mutableListOf(), 1) }
+        assertEquals(1, e.fromVersion)
+    }
+}
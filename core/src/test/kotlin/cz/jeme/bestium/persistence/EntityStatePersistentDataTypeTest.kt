@@ -0,0 +1,44 @@
+package cz.jeme.bestium.persistence
+
+import org.bukkit.persistence.PersistentDataAdapterContext
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+
+class EntityStatePersistentDataTypeTest {
+    private val context = PersistentDataAdapterContext { throw UnsupportedOperationException() }
+
+    private fun roundTrip(state: EntityState) = EntityStatePersistentDataType.fromPrimitive(
+        EntityStatePersistentDataType.toPrimitive(state, context),
+        context
+    )
+
+    @Test
+    fun `states survive a round trip`() {
+        listOf(
+            EntityState(3, 0, false),
+            EntityState(3, 1, true),
+            EntityState(3, 42, false, 7),
+            EntityState(3, Int.MAX_VALUE, true, MAX_INJECTION_DATA_VERSION),
+            EntityState(0xFFFF, -1, true, MAX_INJECTION_DATA_VERSION)
+        ).forEach { assertEquals(it, roundTrip(it)) }
+    }
+
+    @Test
+    fun `fields do not overlap`() {
+        assertEquals(3L shl 48, EntityStatePersistentDataType.toPrimitive(EntityState(3, 0, false), context))
+        assertEquals(1L shl 32, EntityStatePersistentDataType.toPrimitive(EntityState(0, 0, true), context))
+        assertEquals(
+            MAX_INJECTION_DATA_VERSION.toLong() shl 33,
+            EntityStatePersistentDataType.toPrimitive(EntityState(0, 0, false, MAX_INJECTION_DATA_VERSION), context)
+        )
+        // a negative index must not leak into the upper fields
+        assertEquals(0xFFFFFFFFL, EntityStatePersistentDataType.toPrimitive(EntityState(0, -1, false), context))
+    }
+
+    @Test
+    fun `states packed by the migrator are read`() {
+        // the layout the offline migrator writes, see EntityDataMigrator in the migrator module
+        val packed = (3L shl 48) or (1L shl 32) or 5L
+        assertEquals(EntityState(3, 5, true), EntityStatePersistentDataType.fromPrimitive(packed, context))
+    }
+}
@@ -0,0 +1,115 @@
+package cz.jeme.bestium.util
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+
+class ConcurrentIntLongMapTest {
+    @Test
+    fun `absent keys read as zero`() {
+        val map = ConcurrentIntLongMap()
+        assertEquals(0L, map[42])
+        assertFalse(42 in map)
+        assertEquals(0L, map[-1])
+        assertEquals(0L, map.remove(42))
+    }
+
+    @Test
+    fun `values are set, replaced and removed`() {
+        val map = ConcurrentIntLongMap()
+        map[7] = 1L
+        assertEquals(1L, map[7])
+        assertTrue(7 in map)
+
+        map[7] = Long.MIN_VALUE
+        assertEquals(Long.MIN_VALUE, map[7])
+
+        assertEquals(Long.MIN_VALUE, map.remove(7))
+        assertEquals(0L, map[7])
+        assertFalse(7 in map)
+
+        // a removed key can be added again
+        map[7] = 3L
+        assertEquals(3L, map[7])
+    }
+
+    @Test
+    fun `extreme keys are supported`() {
+        val map = ConcurrentIntLongMap()
+        map[0] = 1L
+        map[Int.MAX_VALUE] = 2L
+        assertEquals(1L, map[0])
+        assertEquals(2L, map[Int.MAX_VALUE])
+    }
+
+    @Test
+    fun `negative keys are rejected`() {
+        assertThrows<IllegalArgumentException> { ConcurrentIntLongMap()[-1] = 1L }
+    }
+
+    @Test
+    fun `entries survive rebuilds`() {
+        val map = ConcurrentIntLongMap()
+        val count = 100_000
+        for (key in 0 until count) map[key] = key + 1L
+        for (key in 0 until count step 2) assertEquals(key + 1L, map.remove(key))
+        // removed slots are dropped by the rebuilds these trigger
+        for (key in count until count * 2) map[key] = key + 1L
+
+        for (key in 0 until count * 2) {
+            val expected = if (key < count && key % 2 == 0) 0L else key + 1L
+            assertEquals(expected, map[key], "key $key")
+        }
+    }
+
+    @Test
+    fun `concurrent writers and readers see consistent values`() {
+        val map = ConcurrentIntLongMap()
+        val writers = 4
+        val keysPerWriter = 50_000
+        val executor = Executors.newFixedThreadPool(writers + 2)
+        val start = CountDownLatch(1)
+        val writing = AtomicBoolean(true)
+        val inconsistent = AtomicBoolean(false)
+
+        try {
+            val writes = (0 until writers).map { writer ->
+                executor.submit {
+                    start.await()
+                    for (i in 0 until keysPerWriter) {
+                        val key = i * writers + writer
+                        map[key] = key + 1L
+                    }
+                }
+            }
+            val reads = (0 until 2).map {
+                executor.submit {
+                    start.await()
+                    while (writing.get()) {
+                        for (key in 0 until writers * keysPerWriter step 97) {
+                            // a key is either absent or holds its value, never a value of a different key
+                            val value = map[key]
+                            if (value != 0L && value != key + 1L) inconsistent.set(true)
+                        }
+                    }
+                }
+            }
+
+            start.countDown()
+            writes.forEach { it.get(30, TimeUnit.SECONDS) }
+            writing.set(false)
+            reads.forEach { it.get(30, TimeUnit.SECONDS) }
+        } finally {
+            executor.shutdownNow()
+        }
+
+        assertFalse(inconsistent.get())
+        for (key in 0 until writers * keysPerWriter) assertEquals(key + 1L, map[key], "key $key")
+    }
+}
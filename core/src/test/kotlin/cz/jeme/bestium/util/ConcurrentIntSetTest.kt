@@ -0,0 +1,32 @@
+package cz.jeme.bestium.util
+
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+
+class ConcurrentIntSetTest {
+    @Test
+    fun `values are added and removed`() {
+        val set = ConcurrentIntSet()
+        assertFalse(1 in set)
+
+        set += 1
+        set.add(2)
+        assertTrue(1 in set)
+        assertTrue(2 in set)
+
+        assertTrue(set.remove(1))
+        assertFalse(set.remove(1))
+        assertFalse(1 in set)
+        assertTrue(2 in set)
+    }
+
+    @Test
+    fun `adding a value twice keeps it once`() {
+        val set = ConcurrentIntSet()
+        set += 5
+        set += 5
+        assertTrue(set.remove(5))
+        assertFalse(5 in set)
+    }
+}
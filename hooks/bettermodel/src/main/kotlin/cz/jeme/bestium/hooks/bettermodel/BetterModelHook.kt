@@ -31,6 +31,10 @@ class BetterModelHook {
         }
     }
 
+    fun removeModels(entity: Entity) {
+        BetterModel.registry(entity.uniqueId).ifPresent { registry -> registry.close() }
+    }
+
     private fun onModelAssetsEvent(event: ModelAssetsEvent) {
         Bestium.getInjector().injections.values
             .flatMap { inj -> inj.variants.values }
@@ -0,0 +1,17 @@
+plugins {
+    id("kotlin-conventions")
+    application
+    id("com.gradleup.shadow") // version resolved by the root project
+}
+
+application {
+    mainClass = "cz.jeme.bestium.migrator.MainKt"
+    applicationName = "bestium-migrator"
+}
+
+tasks {
+    shadowJar {
+        archiveBaseName = "${rootProject.name}-Migrator"
+        archiveClassifier = ""
+    }
+}
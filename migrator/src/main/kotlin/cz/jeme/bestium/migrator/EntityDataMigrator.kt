@@ -0,0 +1,78 @@
+package cz.jeme.bestium.migrator
+
+import cz.jeme.bestium.migrator.nbt.NbtCompound
+
+// must match the plugin, see EntityMigrator and EntityStatePersistentDataType in the core module
+const val CURRENT_DATA_VERSION = 3
+private const val NO_VARIANT_ID = "NONE"
+private const val NO_VARIANT_INDEX = 0
+
+private const val STATE = "bestium:state"
+private const val LEGACY_DATA_VERSION = "bestium:data_version"
+private const val LEGACY_VARIANT_ID = "bestium:variant" // version 1
+private const val LEGACY_MODEL_NAME = "bestium:pending_model" // version 1
+private const val LEGACY_VARIANT_INDEX = "bestium:variant_index" // version 2
+private const val LEGACY_MODEL_PENDING = "bestium:model_pending" // version 2
+
+/**
+ * Returns the Bestium data version of an entity from its persistent data container, or `-1` if it has none.
+ *
+ * A legacy variant saved without any data version has the data version 1 format.
+ */
+fun dataVersionOf(values: NbtCompound): Int {
+    (values[STATE] as? Long)?.let { return (it ushr 48).toInt() }
+    return values[LEGACY_DATA_VERSION] as? Int ?: if (LEGACY_VARIANT_ID in values) 1 else -1
+}
+
+/**
+ * Thrown when the variant id of a data version 1 entity cannot be converted, because no data folder was given.
+ */
+class MissingVariantTablesException : IllegalStateException("No Bestium data folder given, cannot convert variant ids")
+
+/**
+ * Migrates the Bestium entries of an entity persistent data container to the current data version,
+ * the same way the plugin does when the entity is loaded.
+ *
+ * Migration steps registered by other plugins for their injections cannot run offline,
+ * these are still applied by the server when the entities are loaded.
+ */
+class EntityDataMigrator(private val tables: VariantTables?) {
+    /**
+     * Returns `true` if the container was changed.
+     *
+     * @param type the entity type key, which is the injection key
+     * @param values the persistent data container of the entity
+     */
+    fun migrate(type: String, values: NbtCompound): Boolean {
+        if (STATE in values) return false // packed since data version 3, there are no newer versions
+        val dataVersion = dataVersionOf(values).takeIf { it != -1 } ?: return false
+
+        val variantIndex: Int?
+        val modelPending: Boolean
+        if (dataVersion < 2) {
+            variantIndex = (values[LEGACY_VARIANT_ID] as? String)?.let {
+                if (it == NO_VARIANT_ID) NO_VARIANT_INDEX
+                else (tables ?: throw MissingVariantTablesException()).indexOf(type, it)
+            }
+            modelPending = LEGACY_MODEL_NAME in values
+        } else {
+            variantIndex = values[LEGACY_VARIANT_INDEX] as? Int
+            modelPending = (values[LEGACY_MODEL_PENDING] as? Byte ?: 0) != 0.toByte()
+        }
+
+        values -= LEGACY_DATA_VERSION
+        values -= LEGACY_VARIANT_ID
+        values -= LEGACY_MODEL_NAME
+        values -= LEGACY_VARIANT_INDEX
+        values -= LEGACY_MODEL_PENDING
+        // without a variant the plugin treats the entity as new, there is nothing to keep
+        if (variantIndex != null) values[STATE] = pack(variantIndex, modelPending)
+        return true
+    }
+
+    private fun pack(variantIndex: Int, modelPending: Boolean): Long {
+        var packed = CURRENT_DATA_VERSION.toLong() shl 48
+        if (modelPending) packed = packed or (1L shl 32)
+        return packed or (variantIndex.toLong() and 0xFFFFFFFFL)
+    }
+}
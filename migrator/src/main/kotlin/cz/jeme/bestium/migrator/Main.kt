@@ -0,0 +1,85 @@
+package cz.jeme.bestium.migrator
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.Executors
+import kotlin.io.path.isDirectory
+import kotlin.io.path.name
+import kotlin.streams.asSequence
+import kotlin.system.exitProcess
+
+private const val USAGE = """Usage: bestium-migrator <scan|migrate> <world directory> [options]
+
+Scans the entity region files of a world for Bestium entities, or migrates their data to the current
+data version. Only run this on a world that is not loaded by a running server, preferably on a copy.
+
+Options:
+  --plugin-data <directory>  the Bestium plugin data folder holding the variant id tables,
+                             defaults to plugins/Bestium next to the world directory
+  --type <key>               an injected entity type, in addition to the ones with a variant id table,
+                             can be repeated
+  --threads <count>          the number of region files processed in parallel, defaults to the processor count"""
+
+private fun usage(message: String? = null): Nothing {
+    message?.let { System.err.println("Error: $it") }
+    System.err.println(USAGE)
+    exitProcess(2)
+}
+
+fun main(args: Array<String>) {
+    if (args.size < 2) usage()
+    val migrate = when (args[0]) {
+        "scan" -> false
+        "migrate" -> true
+        else -> usage("Unknown mode '${args[0]}'")
+    }
+    val world = Path.of(args[1]).toAbsolutePath().normalize()
+    if (!world.isDirectory()) usage("'$world' is not a directory")
+
+    var pluginData = world.resolveSibling("plugins").resolve("Bestium")
+    val types = mutableSetOf<String>()
+    var threads = Runtime.getRuntime().availableProcessors()
+    var i = 2
+    while (i < args.size) {
+        val value = args.getOrNull(i + 1) ?: usage("Missing value of '${args[i]}'")
+        when (args[i]) {
+            "--plugin-data" -> pluginData = Path.of(value)
+            "--type" -> types += value
+            "--threads" -> threads = value.toIntOrNull()?.takeIf { it > 0 } ?: usage("Invalid thread count '$value'")
+            else -> usage("Unknown option '${args[i]}'")
+        }
+        i += 2
+    }
+
+    val tables = if (pluginData.isDirectory()) VariantTables(pluginData) else null
+    if (tables == null) System.err.println("No Bestium data folder at '$pluginData', data version 1 entities cannot be migrated")
+    val injectedKeys = types + (tables?.keys ?: emptySet())
+    if (injectedKeys.isEmpty()) usage("No injected entity types known, pass them with --type")
+
+    val regions = Files.walk(world).use { paths ->
+        paths.asSequence()
+            .filter { it.parent?.name == "entities" && it.name.matches(Regex("""r\.-?\d+\.-?\d+\.mca""")) }
+            .toList()
+    }
+    println("Processing ${regions.size} region files with $threads threads, entity types: ${injectedKeys.sorted().joinToString()}")
+
+    val report = MigrationReport()
+    val processor = RegionProcessor(injectedKeys, if (migrate) EntityDataMigrator(tables) else null, report)
+    val start = System.currentTimeMillis()
+    Executors.newFixedThreadPool(threads).use { executor ->
+        regions.forEach { region ->
+            executor.execute {
+                try {
+                    processor.process(region)
+                } catch (e: Exception) {
+                    report.regionsFailed.increment()
+                    System.err.println("Could not process region '$region': $e")
+                }
+            }
+        }
+    }
+
+    report.print(System.out, migrate)
+    println("Done (took ${System.currentTimeMillis() - start} ms)")
+    if (report.hasFailures) exitProcess(1)
+}
@@ -0,0 +1,44 @@
+package cz.jeme.bestium.migrator
+
+import java.io.PrintStream
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.LongAdder
+
+/**
+ * Counters collected while processing region files, safe to update from multiple threads.
+ */
+class MigrationReport {
+    val regions = LongAdder()
+    val regionsRewritten = LongAdder()
+    val regionsFailed = LongAdder()
+    val chunks = LongAdder()
+    val chunksSkipped = LongAdder()
+    val entitiesMigrated = LongAdder()
+    val entitiesFailed = LongAdder()
+
+    // entity type -> data version -> count
+    private val entities = ConcurrentHashMap<String, ConcurrentHashMap<Int, LongAdder>>()
+
+    fun countEntity(type: String, dataVersion: Int) {
+        entities.computeIfAbsent(type) { ConcurrentHashMap() }.computeIfAbsent(dataVersion) { LongAdder() }.increment()
+    }
+
+    val hasFailures get() = regionsFailed.sum() != 0L || entitiesFailed.sum() != 0L || chunksSkipped.sum() != 0L
+
+    fun print(out: PrintStream, migrate: Boolean) {
+        out.println("Regions: ${regions.sum()} (${regionsRewritten.sum()} rewritten, ${regionsFailed.sum()} failed)")
+        out.println("Chunks: ${chunks.sum()} (${chunksSkipped.sum()} skipped)")
+        if (entities.isEmpty()) out.println("No Bestium entities found")
+        for ((type, versions) in entities.toSortedMap()) {
+            val total = versions.values.sumOf { it.sum() }
+            val byVersion = versions.toSortedMap().entries.joinToString { (version, count) ->
+                "${if (version == -1) "no data" else "v$version"}: ${count.sum()}"
+            }
+            out.println("  $type: $total ($byVersion)")
+        }
+        if (migrate) {
+            out.println("Entities migrated to data version $CURRENT_DATA_VERSION: ${entitiesMigrated.sum()}")
+            out.println("Entities failed: ${entitiesFailed.sum()}")
+        }
+    }
+}
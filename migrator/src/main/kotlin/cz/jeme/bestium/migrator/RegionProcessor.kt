@@ -0,0 +1,87 @@
+package cz.jeme.bestium.migrator
+
+import cz.jeme.bestium.migrator.nbt.NbtCompound
+import cz.jeme.bestium.migrator.nbt.NbtReader
+import cz.jeme.bestium.migrator.nbt.NbtWriter
+import cz.jeme.bestium.migrator.region.ChunkCompression
+import cz.jeme.bestium.migrator.region.RegionFile
+import cz.jeme.bestium.migrator.region.UnsupportedCompressionException
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.nio.file.Path
+
+/**
+ * Scans the entity region files for Bestium entities and optionally migrates them.
+ *
+ * @param injectedKeys the entity type keys of injected entities
+ * @param migrator migrates the entities, `null` to only scan
+ */
+class RegionProcessor(
+    private val injectedKeys: Set<String>,
+    private val migrator: EntityDataMigrator?,
+    private val report: MigrationReport
+) {
+    fun process(path: Path) {
+        val region = RegionFile(path)
+        val chunks = region.read()
+        var modified = false
+
+        for (chunk in chunks) {
+            report.chunks.increment()
+            val root = try {
+                NbtReader(DataInputStream(ChunkCompression.decompress(chunk.compression, chunk.payload).inputStream()))
+                    .readRoot()
+            } catch (e: UnsupportedCompressionException) {
+                report.chunksSkipped.increment()
+                System.err.println("Skipping chunk ${chunk.index} of '$path': ${e.message}")
+                continue
+            }
+
+            val entities = root.list("Entities") ?: continue
+            var chunkModified = false
+            for (entity in entities) {
+                if (entity is NbtCompound && processEntity(entity, path)) chunkModified = true
+            }
+            if (!chunkModified) continue
+
+            val data = ByteArrayOutputStream(chunk.payload.size * 2)
+            NbtWriter(DataOutputStream(data)).writeRoot(root)
+            chunk.payload = ChunkCompression.compress(chunk.compression, data.toByteArray())
+            modified = true
+        }
+
+        report.regions.increment()
+        if (modified) {
+            region.write(chunks)
+            report.regionsRewritten.increment()
+        }
+    }
+
+    /**
+     * Returns `true` if the entity or any of its passengers was changed.
+     */
+    private fun processEntity(entity: NbtCompound, path: Path): Boolean {
+        var modified = false
+        entity.list("Passengers")?.forEach { passenger ->
+            if (passenger is NbtCompound && processEntity(passenger, path)) modified = true
+        }
+
+        val type = entity.string("id") ?: return modified
+        if (type !in injectedKeys) return modified
+        val values = entity.compound("BukkitValues")
+        report.countEntity(type, values?.let(::dataVersionOf) ?: -1)
+        if (migrator == null || values == null) return modified
+
+        try {
+            if (migrator.migrate(type, values)) {
+                report.entitiesMigrated.increment()
+                modified = true
+            }
+        } catch (e: Exception) {
+            report.entitiesFailed.increment()
+            System.err.println("Could not migrate an entity of type '$type' in '$path': ${e.message}")
+        }
+        return modified
+    }
+}
@@ -0,0 +1,83 @@
+package cz.jeme.bestium.migrator
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.io.path.createDirectories
+import kotlin.io.path.exists
+import kotlin.io.path.extension
+import kotlin.io.path.invariantSeparatorsPathString
+import kotlin.io.path.isDirectory
+import kotlin.io.path.readLines
+import kotlin.io.path.relativeTo
+import kotlin.streams.asSequence
+
+// must match the header written by the plugin
+private const val TABLE_HEADER = "# Bestium variant id table, do not edit. The n-th id line below holds the variant stored as index n."
+
+/**
+ * The variant id tables of the Bestium data folder, in the same append-only format the plugin reads.
+ */
+class VariantTables(dataFolder: Path) {
+    private val root = dataFolder.resolve("variants")
+
+    private class Table(val file: Path) {
+        val indices = hashMapOf<String, Int>()
+        var size = 1 // index 0 means no variant
+
+        init {
+            if (file.exists()) {
+                file.readLines()
+                    .filter { it.isNotEmpty() && !it.startsWith('#') }
+                    .forEach { indices[it] = size++ }
+            }
+        }
+    }
+
+    private val tables = ConcurrentHashMap<String, Table>()
+
+    /**
+     * The keys of all the injections that have a table.
+     */
+    val keys: Set<String> = if (!root.isDirectory()) emptySet() else Files.walk(root).use { paths ->
+        paths.asSequence()
+            .filter { it.extension == "txt" }
+            .map { it.relativeTo(root).invariantSeparatorsPathString.removeSuffix(".txt") }
+            .filter { '/' in it }
+            .map { it.replaceFirst('/', ':') }
+            .toSet()
+    }
+
+    private fun table(key: String) = tables.computeIfAbsent(key) {
+        val namespace = key.substringBefore(':')
+        val value = key.substringAfter(':')
+        Table(root.resolve(namespace).resolve("$value.txt"))
+    }
+
+    /**
+     * Returns the index of a variant id of the given injection, appending the id to the table if it is not known yet,
+     * the same way as the plugin does (see VariantIdTable in the core module).
+     *
+     * @throws java.io.IOException if a new index could not be persisted, the index is not assigned then
+     */
+    fun indexOf(key: String, id: String): Int {
+        val table = table(key)
+        synchronized(table) {
+            table.indices[id]?.let { return it }
+            val index = table.size++
+            table.indices[id] = index
+            try {
+                table.file.parent.createDirectories()
+                val lines = if (table.file.exists()) listOf(id) else listOf(TABLE_HEADER, id)
+                Files.write(table.file, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+            } catch (e: Exception) {
+                // an index that is not persisted must never be stored by an entity, it could be reassigned later
+                table.indices -= id
+                table.size--
+                throw e
+            }
+            return index
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package cz.jeme.bestium.migrator.nbt
+
+import java.io.DataInput
+import java.io.IOException
+
+// vanilla rejects deeper structures as well
+private const val MAX_DEPTH = 512
+
+/**
+ * Reads uncompressed binary tags in the Java edition format.
+ */
+class NbtReader(private val input: DataInput) {
+    /**
+     * Reads a named root compound, the name is discarded.
+     */
+    fun readRoot(): NbtCompound {
+        val type = input.readUnsignedByte()
+        if (type != NbtTag.COMPOUND) throw IOException("Root tag is not a compound, but type $type")
+        input.readUTF()
+        return readCompound(0)
+    }
+
+    private fun read(type: Int, depth: Int): Any {
+        if (depth > MAX_DEPTH) throw IOException("Tag is nested deeper than $MAX_DEPTH")
+        return when (type) {
+            NbtTag.BYTE -> input.readByte()
+            NbtTag.SHORT -> input.readShort()
+            NbtTag.INT -> input.readInt()
+            NbtTag.LONG -> input.readLong()
+            NbtTag.FLOAT -> input.readFloat()
+            NbtTag.DOUBLE -> input.readDouble()
+            NbtTag.BYTE_ARRAY -> ByteArray(readLength()).also(input::readFully)
+            NbtTag.STRING -> input.readUTF()
+            NbtTag.LIST -> {
+                val elementType = input.readUnsignedByte()
+                val length = readLength()
+                NbtList(elementType, ArrayList(length)).apply {
+                    repeat(length) { add(read(elementType, depth + 1)) }
+                }
+            }
+
+            NbtTag.COMPOUND -> readCompound(depth)
+            NbtTag.INT_ARRAY -> IntArray(readLength()) { input.readInt() }
+            NbtTag.LONG_ARRAY -> LongArray(readLength()) { input.readLong() }
+            else -> throw IOException("Unknown tag type $type")
+        }
+    }
+
+    private fun readCompound(depth: Int): NbtCompound {
+        val compound = NbtCompound()
+        while (true) {
+            val type = input.readUnsignedByte()
+            if (type == NbtTag.END) return compound
+            val name = input.readUTF()
+            compound[name] = read(type, depth + 1)
+        }
+    }
+
+    private fun readLength(): Int {
+        val length = input.readInt()
+        if (length < 0) throw IOException("Negative length $length")
+        return length
+    }
+}
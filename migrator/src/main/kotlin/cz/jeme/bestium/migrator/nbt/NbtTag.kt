@@ -0,0 +1,58 @@
+package cz.jeme.bestium.migrator.nbt
+
+/**
+ * Binary tag type IDs.
+ *
+ * Tags are represented by plain values: [Byte], [Short], [Int], [Long], [Float], [Double], [ByteArray], [String],
+ * [NbtList], [NbtCompound], [IntArray] and [LongArray].
+ */
+object NbtTag {
+    const val END = 0
+    const val BYTE = 1
+    const val SHORT = 2
+    const val INT = 3
+    const val LONG = 4
+    const val FLOAT = 5
+    const val DOUBLE = 6
+    const val BYTE_ARRAY = 7
+    const val STRING = 8
+    const val LIST = 9
+    const val COMPOUND = 10
+    const val INT_ARRAY = 11
+    const val LONG_ARRAY = 12
+
+    /**
+     * Returns the type ID of a tag value.
+     */
+    fun typeOf(value: Any): Int = when (value) {
+        is Byte -> BYTE
+        is Short -> SHORT
+        is Int -> INT
+        is Long -> LONG
+        is Float -> FLOAT
+        is Double -> DOUBLE
+        is ByteArray -> BYTE_ARRAY
+        is String -> STRING
+        is NbtList -> LIST
+        is NbtCompound -> COMPOUND
+        is IntArray -> INT_ARRAY
+        is LongArray -> LONG_ARRAY
+        else -> throw IllegalArgumentException("Not a tag value: ${value.javaClass.name}")
+    }
+}
+
+/**
+ * A compound tag, keeping the order of its entries.
+ */
+class NbtCompound : LinkedHashMap<String, Any>() {
+    fun compound(key: String) = this[key] as? NbtCompound
+
+    fun list(key: String) = this[key] as? NbtList
+
+    fun string(key: String) = this[key] as? String
+}
+
+/**
+ * A list tag, the element type is kept so that empty lists are written back unchanged.
+ */
+class NbtList(val elementType: Int, val values: MutableList<Any> = mutableListOf()) : MutableList<Any> by values
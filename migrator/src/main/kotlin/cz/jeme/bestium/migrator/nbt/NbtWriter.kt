@@ -0,0 +1,60 @@
+package cz.jeme.bestium.migrator.nbt
+
+import java.io.DataOutput
+
+/**
+ * Writes uncompressed binary tags in the Java edition format.
+ */
+class NbtWriter(private val output: DataOutput) {
+    /**
+     * Writes a root compound with an empty name.
+     */
+    fun writeRoot(root: NbtCompound) {
+        output.writeByte(NbtTag.COMPOUND)
+        output.writeUTF("")
+        write(root)
+    }
+
+    private fun write(value: Any) {
+        when (value) {
+            is Byte -> output.writeByte(value.toInt())
+            is Short -> output.writeShort(value.toInt())
+            is Int -> output.writeInt(value)
+            is Long -> output.writeLong(value)
+            is Float -> output.writeFloat(value)
+            is Double -> output.writeDouble(value)
+            is ByteArray -> {
+                output.writeInt(value.size)
+                output.write(value)
+            }
+
+            is String -> output.writeUTF(value)
+            is NbtList -> {
+                output.writeByte(if (value.isEmpty()) value.elementType else NbtTag.typeOf(value.first()))
+                output.writeInt(value.size)
+                value.forEach(::write)
+            }
+
+            is NbtCompound -> {
+                for ((name, tag) in value) {
+                    output.writeByte(NbtTag.typeOf(tag))
+                    output.writeUTF(name)
+                    write(tag)
+                }
+                output.writeByte(NbtTag.END)
+            }
+
+            is IntArray -> {
+                output.writeInt(value.size)
+                value.forEach(output::writeInt)
+            }
+
+            is LongArray -> {
+                output.writeInt(value.size)
+                value.forEach(output::writeLong)
+            }
+
+            else -> throw IllegalArgumentException("Not a tag value: ${value.javaClass.name}")
+        }
+    }
+}
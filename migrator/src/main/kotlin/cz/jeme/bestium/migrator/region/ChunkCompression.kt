@@ -0,0 +1,41 @@
+package cz.jeme.bestium.migrator.region
+
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import java.util.zip.DeflaterOutputStream
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
+import java.util.zip.InflaterInputStream
+
+/**
+ * The compression schemes of chunks stored in region files.
+ */
+object ChunkCompression {
+    const val GZIP = 1
+    const val ZLIB = 2
+    const val NONE = 3
+    const val LZ4 = 4
+
+    fun decompress(type: Int, payload: ByteArray): ByteArray = when (type) {
+        GZIP -> GZIPInputStream(payload.inputStream()).use { it.readBytes() }
+        ZLIB -> InflaterInputStream(payload.inputStream()).use { it.readBytes() }
+        NONE -> payload
+        else -> throw UnsupportedCompressionException(type)
+    }
+
+    fun compress(type: Int, data: ByteArray): ByteArray = when (type) {
+        GZIP -> ByteArrayOutputStream(data.size / 2).also { out -> GZIPOutputStream(out).use { it.write(data) } }
+            .toByteArray()
+
+        ZLIB -> ByteArrayOutputStream(data.size / 2).also { out -> DeflaterOutputStream(out).use { it.write(data) } }
+            .toByteArray()
+
+        NONE -> data
+        else -> throw UnsupportedCompressionException(type)
+    }
+}
+
+/**
+ * Thrown for chunks compressed with a scheme this tool cannot handle, such as LZ4 or a custom one.
+ */
+class UnsupportedCompressionException(val type: Int) : IOException("Unsupported chunk compression type $type")
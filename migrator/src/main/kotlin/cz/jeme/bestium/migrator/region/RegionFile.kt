@@ -0,0 +1,139 @@
+package cz.jeme.bestium.migrator.region
+
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import kotlin.io.path.deleteIfExists
+import kotlin.io.path.name
+
+private const val SECTOR_SIZE = 4096
+private const val CHUNKS = 1024
+private const val HEADER_SECTORS = 2
+private const val MAX_CHUNK_SECTORS = 255
+
+// set on the compression type when the chunk is stored in a separate .mcc file
+private const val EXTERNAL_FLAG = 0x80
+
+private val REGION_NAME = Regex("""r\.(-?\d+)\.(-?\d+)\.mca""")
+
+/**
+ * A single chunk of a region file.
+ *
+ * @param index the index of the chunk within the region, `x + z * 32` in region-local coordinates
+ * @param timestamp the last modification time in epoch seconds
+ * @param compression the compression type of the payload, see [ChunkCompression]
+ * @param payload the compressed chunk data
+ */
+class RegionChunk(val index: Int, val timestamp: Int, val compression: Int, var payload: ByteArray)
+
+/**
+ * Reads and writes Anvil region files.
+ *
+ * Region files are read through a memory mapping and written to a temporary file first,
+ * which then atomically replaces the original.
+ */
+class RegionFile(val path: Path) {
+    private val regionX: Int
+    private val regionZ: Int
+
+    init {
+        val match = REGION_NAME.matchEntire(path.name) ?: throw IllegalArgumentException("Not a region file: $path")
+        regionX = match.groupValues[1].toInt()
+        regionZ = match.groupValues[2].toInt()
+    }
+
+    // chunks stored in a separate file when this region was read
+    private val externalIndices = mutableSetOf<Int>()
+
+    private fun externalPath(index: Int) = path.resolveSibling(
+        "c.${regionX * 32 + (index and 31)}.${regionZ * 32 + (index ushr 5)}.mcc"
+    )
+
+    fun read(): List<RegionChunk> = FileChannel.open(path, StandardOpenOption.READ).use { channel ->
+        val size = channel.size()
+        if (size < HEADER_SECTORS * SECTOR_SIZE) return emptyList() // empty or never written region
+        val buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size)
+
+        val chunks = mutableListOf<RegionChunk>()
+        for (index in 0 until CHUNKS) {
+            val location = buffer.getInt(index * 4)
+            if (location == 0) continue // chunk not present
+            val offset = (location ushr 8).toLong() * SECTOR_SIZE
+            if (offset < HEADER_SECTORS * SECTOR_SIZE || offset + 5 > size)
+                throw IOException("Chunk $index of region '$path' points outside of the file")
+            val timestamp = buffer.getInt(SECTOR_SIZE + index * 4)
+
+            val length = buffer.getInt(offset.toInt())
+            val type = buffer.get(offset.toInt() + 4).toInt() and 0xFF
+            val payload = if (type and EXTERNAL_FLAG != 0) {
+                externalIndices += index
+                Files.readAllBytes(externalPath(index))
+            } else {
+                if (length < 1 || offset + 4 + length > size)
+                    throw IOException("Chunk $index of region '$path' has an invalid length $length")
+                ByteArray(length - 1).also { buffer.get(offset.toInt() + 5, it) }
+            }
+            chunks += RegionChunk(index, timestamp, type and EXTERNAL_FLAG.inv(), payload)
+        }
+        chunks
+    }
+
+    /**
+     * Replaces this region file with the given chunks.
+     */
+    fun write(chunks: List<RegionChunk>) {
+        val temp = path.resolveSibling("${path.name}.tmp")
+        val locations = IntArray(CHUNKS)
+        val timestamps = IntArray(CHUNKS)
+        val stillExternal = mutableSetOf<Int>()
+
+        FileChannel.open(
+            temp,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING
+        ).use { channel ->
+            var sector = HEADER_SECTORS
+            for (chunk in chunks.sortedBy { it.index }) {
+                val sectors = (4 + 1 + chunk.payload.size + SECTOR_SIZE - 1) / SECTOR_SIZE
+                val data = if (sectors > MAX_CHUNK_SECTORS) {
+                    // too large for the region, stored next to it, the region only holds a marker
+                    writeAtomically(externalPath(chunk.index), chunk.payload)
+                    stillExternal += chunk.index
+                    ByteBuffer.allocate(SECTOR_SIZE).putInt(1).put((chunk.compression or EXTERNAL_FLAG).toByte())
+                } else {
+                    ByteBuffer.allocate(sectors * SECTOR_SIZE)
+                        .putInt(chunk.payload.size + 1)
+                        .put(chunk.compression.toByte())
+                        .put(chunk.payload)
+                }
+                val used = if (sectors > MAX_CHUNK_SECTORS) 1 else sectors
+                channel.write(data.rewind(), sector.toLong() * SECTOR_SIZE)
+                locations[chunk.index] = (sector shl 8) or used
+                timestamps[chunk.index] = chunk.timestamp
+                sector += used
+            }
+
+            val header = ByteBuffer.allocate(HEADER_SECTORS * SECTOR_SIZE)
+            locations.forEach(header::putInt)
+            timestamps.forEach(header::putInt)
+            channel.write(header.rewind(), 0)
+            channel.force(true)
+        }
+
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING)
+        (externalIndices - stillExternal).forEach { externalPath(it).deleteIfExists() }
+        externalIndices.clear()
+        externalIndices += stillExternal
+    }
+
+    private fun writeAtomically(target: Path, bytes: ByteArray) {
+        val temp = target.resolveSibling("${target.name}.tmp")
+        Files.write(temp, bytes)
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING)
+    }
+}
@@ -0,0 +1,104 @@
+package cz.jeme.bestium.migrator.nbt
+
+import org.junit.jupiter.api.Assertions.assertArrayEquals
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+
+class NbtRoundTripTest {
+    private fun write(root: NbtCompound) = ByteArrayOutputStream().also {
+        DataOutputStream(it).use { output -> NbtWriter(output).writeRoot(root) }
+    }.toByteArray()
+
+    private fun read(bytes: ByteArray) = DataInputStream(ByteArrayInputStream(bytes)).use { NbtReader(it).readRoot() }
+
+    @Test
+    fun `all tag types survive a round trip`() {
+        val nested = NbtCompound().apply {
+            this["string"] = "Bestium ✓"
+            this["empty"] = NbtCompound()
+        }
+        val root = NbtCompound().apply {
+            this["byte"] = (-1).toByte()
+            this["short"] = Short.MIN_VALUE
+            this["int"] = 42
+            this["long"] = Long.MAX_VALUE
+            this["float"] = 1.5f
+            this["double"] = -0.25
+            this["byte_array"] = byteArrayOf(1, 2, 3)
+            this["string"] = ""
+            this["list"] = NbtList(NbtTag.INT, mutableListOf(1, 2, 3))
+            this["compound_list"] = NbtList(NbtTag.COMPOUND, mutableListOf(nested))
+            this["compound"] = nested
+            this["int_array"] = intArrayOf(Int.MIN_VALUE, 0, Int.MAX_VALUE)
+            this["long_array"] = longArrayOf(Long.MIN_VALUE, 0L)
+        }
+
+        val bytes = write(root)
+        val read = read(bytes)
+
+        assertEquals(root.keys.toList(), read.keys.toList())
+        assertEquals((-1).toByte(), read["byte"])
+        assertEquals(Short.MIN_VALUE, read["short"])
+        assertEquals(42, read["int"])
+        assertEquals(Long.MAX_VALUE, read["long"])
+        assertEquals(1.5f, read["float"])
+        assertEquals(-0.25, read["double"])
+        assertArrayEquals(byteArrayOf(1, 2, 3), read["byte_array"] as ByteArray)
+        assertEquals("", read.string("string"))
+        assertEquals(listOf<Any>(1, 2, 3), read.list("list")!!.values)
+        assertEquals("Bestium ✓", (read.list("compound_list")!!.single() as NbtCompound).string("string"))
+        assertEquals("Bestium ✓", read.compound("compound")!!.string("string"))
+        assertEquals(emptyMap<String, Any>(), read.compound("compound")!!.compound("empty"))
+        assertArrayEquals(intArrayOf(Int.MIN_VALUE, 0, Int.MAX_VALUE), read["int_array"] as IntArray)
+        assertArrayEquals(longArrayOf(Long.MIN_VALUE, 0L), read["long_array"] as LongArray)
+
+        // writing what was read gives back the same bytes
+        assertArrayEquals(bytes, write(read))
+    }
+
+    @Test
+    fun `empty lists keep their element type`() {
+        val root = NbtCompound().apply { this["list"] = NbtList(NbtTag.COMPOUND) }
+        val bytes = write(root)
+        assertEquals(NbtTag.COMPOUND, read(bytes).list("list")!!.elementType)
+        assertArrayEquals(bytes, write(read(bytes)))
+    }
+
+    @Test
+    fun `non compound roots are rejected`() {
+        val bytes = ByteArrayOutputStream().also {
+            DataOutputStream(it).use { output ->
+                output.writeByte(NbtTag.INT)
+                output.writeUTF("")
+                output.writeInt(1)
+            }
+        }.toByteArray()
+        assertThrows<IOException> { read(bytes) }
+    }
+
+    @Test
+    fun `negative lengths are rejected`() {
+        val bytes = ByteArrayOutputStream().also {
+            DataOutputStream(it).use { output ->
+                output.writeByte(NbtTag.COMPOUND)
+                output.writeUTF("")
+                output.writeByte(NbtTag.INT_ARRAY)
+                output.writeUTF("array")
+                output.writeInt(-1)
+            }
+        }.toByteArray()
+        assertThrows<IOException> { read(bytes) }
+    }
+
+    @Test
+    fun `values that are not tags are rejected`() {
+        val root = NbtCompound().apply { this["char"] = 'c' }
+        assertThrows<IllegalArgumentException> { write(root) }
+    }
+}
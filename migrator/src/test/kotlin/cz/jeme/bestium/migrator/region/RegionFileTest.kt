@@ -0,0 +1,113 @@
+package cz.jeme.bestium.migrator.region
+
+import org.junit.jupiter.api.Assertions.assertArrayEquals
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import org.junit.jupiter.api.io.TempDir
+import java.nio.file.Files
+import java.nio.file.Path
+import kotlin.io.path.exists
+import kotlin.io.path.fileSize
+import kotlin.random.Random
+
+class RegionFileTest {
+    @TempDir
+    lateinit var directory: Path
+
+    private fun payload(size: Int, seed: Int) = Random(seed).nextBytes(size)
+
+    private fun assertChunksEqual(expected: List<RegionChunk>, actual: List<RegionChunk>) {
+        assertEquals(expected.map { it.index }, actual.map { it.index })
+        expected.zip(actual).forEach { (e, a) ->
+            assertEquals(e.timestamp, a.timestamp, "timestamp of chunk ${e.index}")
+            assertEquals(e.compression, a.compression, "compression of chunk ${e.index}")
+            assertArrayEquals(e.payload, a.payload, "payload of chunk ${e.index}")
+        }
+    }
+
+    @Test
+    fun `chunks survive a round trip`() {
+        val path = directory.resolve("r.0.0.mca")
+        Files.createFile(path)
+        val chunks = listOf(
+            RegionChunk(0, 100, ChunkCompression.ZLIB, payload(10, 0)),
+            RegionChunk(31, 200, ChunkCompression.GZIP, payload(4096 - 5, 1)), // exactly one sector
+            RegionChunk(32, 300, ChunkCompression.NONE, payload(4096 - 4, 2)), // one byte over a sector
+            RegionChunk(1023, 400, ChunkCompression.ZLIB, payload(50_000, 3))
+        )
+
+        RegionFile(path).write(chunks)
+        assertEquals(0L, path.fileSize() % 4096)
+        assertChunksEqual(chunks, RegionFile(path).read())
+        assertFalse(directory.resolve("r.0.0.mca.tmp").exists())
+    }
+
+    @Test
+    fun `chunks are read in index order`() {
+        val path = directory.resolve("r.0.0.mca")
+        val chunks = listOf(
+            RegionChunk(5, 1, ChunkCompression.ZLIB, payload(1, 0)),
+            RegionChunk(2, 2, ChunkCompression.ZLIB, payload(2, 1))
+        )
+        RegionFile(path).write(chunks)
+        assertChunksEqual(chunks.sortedBy { it.index }, RegionFile(path).read())
+    }
+
+    @Test
+    fun `empty regions have no chunks`() {
+        val path = directory.resolve("r.-1.2.mca")
+        Files.createFile(path)
+        assertEquals(emptyList<RegionChunk>(), RegionFile(path).read())
+    }
+
+    @Test
+    fun `oversized chunks are stored externally`() {
+        val path = directory.resolve("r.-1.2.mca")
+        // chunk x = 3, z = 1 within the region
+        val index = 3 + 1 * 32
+        val large = RegionChunk(index, 7, ChunkCompression.ZLIB, payload(255 * 4096, 4))
+        val small = RegionChunk(0, 8, ChunkCompression.ZLIB, payload(100, 5))
+
+        RegionFile(path).write(listOf(small, large))
+        // the chunk coordinates are absolute
+        val external = directory.resolve("c.${-32 + 3}.${64 + 1}.mcc")
+        assertTrue(external.exists())
+        assertArrayEquals(large.payload, Files.readAllBytes(external))
+        // the header and one sector for each chunk
+        assertEquals(4L * 4096, path.fileSize())
+
+        val region = RegionFile(path)
+        assertChunksEqual(listOf(small, large), region.read())
+
+        // once the chunk fits into the region again, the external file is removed
+        region.write(listOf(small, RegionChunk(index, 9, ChunkCompression.ZLIB, payload(10, 6))))
+        assertFalse(external.exists())
+        assertEquals(listOf(8, 9), RegionFile(path).read().map { it.timestamp })
+    }
+
+    @Test
+    fun `chunks pointing outside of the file are rejected`() {
+        val path = directory.resolve("r.0.0.mca")
+        RegionFile(path).write(listOf(RegionChunk(0, 1, ChunkCompression.ZLIB, payload(10, 0))))
+        // truncate the chunk data, keeping only the header
+        Files.write(path, Files.readAllBytes(path).copyOf(2 * 4096))
+        assertThrows<java.io.IOException> { RegionFile(path).read() }
+    }
+
+    @Test
+    fun `files that are not regions are rejected`() {
+        assertThrows<IllegalArgumentException> { RegionFile(directory.resolve("level.dat")) }
+    }
+
+    @Test
+    fun `compression round trips`() {
+        val data = payload(10_000, 7)
+        for (type in listOf(ChunkCompression.GZIP, ChunkCompression.ZLIB, ChunkCompression.NONE)) {
+            assertArrayEquals(data, ChunkCompression.decompress(type, ChunkCompression.compress(type, data)))
+        }
+        assertThrows<UnsupportedCompressionException> { ChunkCompression.compress(ChunkCompression.LZ4, data) }
+    }
+}
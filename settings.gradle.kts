@@ -1,6 +1,6 @@
 rootProject.name = "Bestium"
 
-include("core", "api", "hooks:bettermodel")
+include("core", "api", "hooks:bettermodel", "benchmarks", "migrator")
 
 dependencyResolutionManagement {
     repositories {